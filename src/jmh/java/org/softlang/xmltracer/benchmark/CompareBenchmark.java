@@ -0,0 +1,105 @@
+package org.softlang.xmltracer.benchmark;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.comparator.JavaXmlComparator;
+import org.softlang.xmltracer.comparator.Mismatch;
+import org.softlang.xmltracer.data.CompactTree;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.parser.CompactXmlParser;
+import org.softlang.xmltracer.parser.DomXmlParser;
+import org.softlang.xmltracer.parser.JavaObjectParser;
+
+/**
+ * Latency of the comparators on matching trees and on trees with a few
+ * changed salaries.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CompareBenchmark {
+
+    @Param({"100000", "1000000"})
+    public long nodes;
+
+    @Param({"2", "16"})
+    public int depth;
+
+    @Param({"2", "16"})
+    public int fanOut;
+
+    @Param({"false", "true"})
+    public boolean mismatch;
+
+    private ObjectElement javaElement;
+    private ObjectElement xmlElement;
+    private ObjectElement otherXmlElement;
+    private CompactTree tree;
+    private CompactTree otherTree;
+
+    private final Comparator comparator = new Comparator();
+    private final Comparator javaXmlComparator = new JavaXmlComparator();
+
+    @Setup
+    public void setup() throws Exception {
+        CompanyGenerator generator = new CompanyGenerator(0);
+        generator.setNodes(nodes);
+        generator.setDepth(depth);
+        generator.setFanOut(fanOut);
+        generator.setMutationRate(mismatch ? 1.0 / nodes : 0);
+
+        File file = File.createTempFile("company", ".xml");
+        File otherFile = File.createTempFile("company", ".xml");
+        try {
+            generator.writeXml(file, false);
+            generator.writeXml(otherFile, true);
+
+            javaElement = new JavaObjectParser().getObjectElement(generator.createCompany(true));
+            xmlElement = new DomXmlParser(file).getParseResult();
+            otherXmlElement = new DomXmlParser(otherFile).getParseResult();
+            tree = new CompactXmlParser(file).getParseResult();
+            otherTree = new CompactXmlParser(otherFile).getParseResult();
+        } finally {
+            file.delete();
+            otherFile.delete();
+        }
+
+    }
+
+    @Benchmark
+    public boolean javaXml() {
+        return javaXmlComparator.compare(javaElement, xmlElement);
+    }
+
+    @Benchmark
+    public boolean xml() {
+        return comparator.compare(xmlElement, otherXmlElement);
+    }
+
+    @Benchmark
+    public boolean compact() {
+        return comparator.compare(tree, otherTree);
+    }
+
+    @Benchmark
+    public List<Mismatch> javaXmlMismatches() {
+        return javaXmlComparator.findMismatches(javaElement, xmlElement, 1);
+    }
+}
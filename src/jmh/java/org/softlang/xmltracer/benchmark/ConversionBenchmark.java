@@ -0,0 +1,64 @@
+package org.softlang.xmltracer.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+import org.softlang.xmltracer.comparator.model.Company;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.parser.JavaObjectParser;
+
+/**
+ * Throughput of the JavaObjectParser on a generated company object graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConversionBenchmark {
+
+    @Param({"100000", "1000000"})
+    public long nodes;
+
+    @Param({"2", "16"})
+    public int depth;
+
+    @Param({"2", "16"})
+    public int fanOut;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private Company company;
+    private JavaObjectParser parser;
+
+    @Setup
+    public void setup() {
+        CompanyGenerator generator = new CompanyGenerator(0);
+        generator.setNodes(nodes);
+        generator.setDepth(depth);
+        generator.setFanOut(fanOut);
+        company = generator.createCompany(false);
+        parser = new JavaObjectParser();
+        if (parallel) {
+            parser.setParallelism(ForkJoinPool.commonPool(), 64);
+        }
+    }
+
+    @Benchmark
+    public ObjectElement convert() throws Exception {
+        return parser.getObjectElement(company);
+    }
+}
@@ -0,0 +1,90 @@
+package org.softlang.xmltracer.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.comparator.JavaXmlComparator;
+import org.softlang.xmltracer.comparator.model.Company;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.parser.DomXmlParser;
+import org.softlang.xmltracer.parser.JavaObjectParser;
+
+/**
+ * Latency of converting a company object graph and comparing it with its XML,
+ * eagerly with getObjectElement() and lazily with getLazyObjectElement(). The
+ * XML matches, has a few changed salaries or is another company.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LazyConversionBenchmark {
+
+    @Param({"100000", "1000000"})
+    public long nodes;
+
+    @Param({"2", "16"})
+    public int depth;
+
+    @Param({"2", "16"})
+    public int fanOut;
+
+    @Param({"none", "salary", "company"})
+    public String mismatch;
+
+    private Company company;
+    private ObjectElement xmlElement;
+
+    private final JavaObjectParser parser = new JavaObjectParser();
+    private final Comparator comparator = new JavaXmlComparator();
+
+    @Setup
+    public void setup() throws Exception {
+        CompanyGenerator generator = new CompanyGenerator(0);
+        generator.setNodes(nodes);
+        generator.setDepth(depth);
+        generator.setFanOut(fanOut);
+        generator.setMutationRate(1.0 / nodes);
+        company = generator.createCompany(false);
+
+        CompanyGenerator xmlGenerator = generator;
+        if ("company".equals(mismatch)) {
+            xmlGenerator = new CompanyGenerator(1);
+            xmlGenerator.setNodes(nodes);
+            xmlGenerator.setDepth(depth);
+            xmlGenerator.setFanOut(fanOut);
+        }
+
+        File file = File.createTempFile("company", ".xml");
+        try {
+            xmlGenerator.writeXml(file, "salary".equals(mismatch));
+            xmlElement = new DomXmlParser(file).getParseResult();
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Benchmark
+    public boolean eager() throws Exception {
+        return comparator.compare(parser.getObjectElement(company), xmlElement);
+    }
+
+    @Benchmark
+    public boolean lazy() throws Exception {
+        return comparator.compare(parser.getLazyObjectElement(company), xmlElement);
+    }
+}
@@ -0,0 +1,90 @@
+package org.softlang.xmltracer.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+import org.softlang.xmltracer.data.CompactTree;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.TreeSnapshot;
+import org.softlang.xmltracer.parser.CompactXmlParser;
+import org.softlang.xmltracer.parser.DomXmlParser;
+import org.softlang.xmltracer.parser.StaxXmlParser;
+
+/**
+ * Throughput of the XML parsers on a generated company document. Run with the
+ * GC profiler for the allocation of every parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"100000", "1000000"})
+    public long nodes;
+
+    @Param({"2", "16"})
+    public int depth;
+
+    @Param({"2", "16"})
+    public int fanOut;
+
+    private File file;
+    private File snapshot;
+
+    @Setup
+    public void setup() throws Exception {
+        file = File.createTempFile("company", ".xml");
+        generator().writeXml(file, false);
+        snapshot = File.createTempFile("company", ".snapshot");
+        TreeSnapshot.write(new CompactXmlParser(file).getParseResult(), snapshot);
+    }
+
+    private CompanyGenerator generator() {
+        CompanyGenerator generator = new CompanyGenerator(0);
+        generator.setNodes(nodes);
+        generator.setDepth(depth);
+        generator.setFanOut(fanOut);
+        return generator;
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+        snapshot.delete();
+    }
+
+    @Benchmark
+    public ObjectElement dom() throws Exception {
+        return new DomXmlParser(file).getParseResult();
+    }
+
+    @Benchmark
+    public ObjectElement stax() throws Exception {
+        return new StaxXmlParser(file).getParseResult();
+    }
+
+    @Benchmark
+    public CompactTree compact() throws Exception {
+        return new CompactXmlParser(file).getParseResult();
+    }
+
+    @Benchmark
+    public CompactTree snapshot() throws Exception {
+        return TreeSnapshot.read(snapshot);
+    }
+}
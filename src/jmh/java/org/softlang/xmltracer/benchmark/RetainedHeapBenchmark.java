@@ -0,0 +1,134 @@
+package org.softlang.xmltracer.benchmark;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.softlang.xmltracer.comparator.model.Company;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+import org.softlang.xmltracer.parser.DomXmlParser;
+import org.softlang.xmltracer.parser.JavaObjectParser;
+import org.softlang.xmltracer.parser.StaxXmlParser;
+import org.softlang.xmltracer.parser.SymbolTable;
+
+/**
+ * Retained heap of the parse results of a generated company, with the default
+ * SymbolTable of every parse and with a table whose zero bounds disable the
+ * interning. Every operation parses once and measures the used heap after
+ * forced garbage collections while the result is still referenced, which
+ * needs the parallel collector to be exact. The retained size is reported by
+ * the secondary result retainedBytes, which JMH sums over the iterations, so a
+ * single iteration is measured. The time includes the collections.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g", "-XX:+UseParallelGC"})
+public class RetainedHeapBenchmark {
+
+    @Param({"1000000"})
+    public long nodes;
+
+    @Param({"8"})
+    public int depth;
+
+    @Param({"8"})
+    public int fanOut;
+
+    @Param({"true", "false"})
+    public boolean symbols;
+
+    private File file;
+    private Company company;
+    private Object result;
+
+    /**
+     * The retained size of the result of the last operation.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Retained {
+
+        public long retainedBytes;
+    }
+
+    @Setup
+    public void setup() throws Exception {
+        CompanyGenerator generator = new CompanyGenerator(0);
+        generator.setNodes(nodes);
+        generator.setDepth(depth);
+        generator.setFanOut(fanOut);
+        generator.setDuplicateRatio(0.1);
+        file = File.createTempFile("company", ".xml");
+        generator.writeXml(file, false);
+        company = generator.createCompany(false);
+    }
+
+    @TearDown
+    public void tearDown() {
+        file.delete();
+    }
+
+    @Benchmark
+    public void dom(Retained retained) throws Exception {
+        long before = usedHeap();
+        result = symbols ? new DomXmlParser(file).getParseResult()
+                : new DomXmlParser(file, new SymbolTable(0, 0, 0)).getParseResult();
+        retained.retainedBytes = usedHeap() - before;
+        result = null;
+    }
+
+    @Benchmark
+    public void stax(Retained retained) throws Exception {
+        long before = usedHeap();
+        result = symbols ? new StaxXmlParser(file).getParseResult()
+                : new StaxXmlParser(file, new SymbolTable(0, 0, 0)).getParseResult();
+        retained.retainedBytes = usedHeap() - before;
+        result = null;
+    }
+
+    @Benchmark
+    public void convert(Retained retained) throws Exception {
+        JavaObjectParser parser = new JavaObjectParser();
+        if (!symbols) {
+            parser.setSymbolTable(new SymbolTable(0, 0, 0));
+        }
+        long before = usedHeap();
+        result = parser.getObjectElement(company);
+        retained.retainedBytes = usedHeap() - before;
+        result = null;
+    }
+
+    /**
+     * Helper method for returning the used heap after the garbage collector
+     * had the chance to free all unreachable objects.
+     */
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            long current = memory.getHeapMemoryUsage().getUsed();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
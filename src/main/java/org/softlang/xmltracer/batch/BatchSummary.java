@@ -0,0 +1,81 @@
+package org.softlang.xmltracer.batch;
+
+import java.util.List;
+
+/**
+ * The summary of a batch run.
+ */
+public class BatchSummary {
+
+    private final int matches;
+    private final int mismatches;
+    private final int errors;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final List<TraceResult> slowest;
+
+    public BatchSummary(int matches, int mismatches, int errors, long bytes, long elapsedNanos, List<TraceResult> slowest) {
+        this.matches = matches;
+        this.mismatches = mismatches;
+        this.errors = errors;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.slowest = slowest;
+    }
+
+    public int getPairs() {
+        return matches + mismatches + errors;
+    }
+
+    public int getMatches() {
+        return matches;
+    }
+
+    public int getMismatches() {
+        return mismatches;
+    }
+
+    public int getErrors() {
+        return errors;
+    }
+
+    /**
+     * Method for returning the size of all traced XML files.
+     *
+     * @return The size in bytes.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Method for returning the slowest pairs.
+     *
+     * @return The results of the slowest pairs, slowest first.
+     */
+    public List<TraceResult> getSlowest() {
+        return slowest;
+    }
+
+    @Override
+    public String toString() {
+        double seconds = Math.max(elapsedNanos, 1) / 1e9;
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%d pairs: %d matches, %d mismatches, %d errors%n",
+                getPairs(), matches, mismatches, errors));
+        builder.append(String.format("%.1f s, %.1f pairs/s, %.1f MB/s",
+                seconds, getPairs() / seconds, bytes / 1e6 / seconds));
+
+        if (!slowest.isEmpty()) {
+            builder.append(String.format("%nSlowest:"));
+            for (TraceResult result : slowest) {
+                builder.append(String.format("%n    %.1f ms %s", result.getTotalNanos() / 1e6, result.getPair().getName()));
+            }
+        }
+        return builder.toString();
+    }
+}
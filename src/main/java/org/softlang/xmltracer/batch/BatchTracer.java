@@ -0,0 +1,403 @@
+package org.softlang.xmltracer.batch;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.comparator.JavaXmlComparator;
+import org.softlang.xmltracer.comparator.Mismatch;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.parser.DomXmlParser;
+import org.softlang.xmltracer.parser.JavaObjectParser;
+import org.softlang.xmltracer.parser.SymbolTable;
+
+/**
+ * A tracer for many pairs of a Java object and an XML file. The pairs are
+ * parsed and compared on a fixed number of workers, every worker keeps its
+ * own parser, comparator and SymbolTable for all of its pairs. A result is
+ * reported as soon as its pair is done, at the end a BatchSummary is
+ * returned.
+ *
+ * By default there are twice as many workers as processors, so while some
+ * workers wait for their files to be read the others keep the processors
+ * busy. Only a bounded number of pairs is queued ahead of the workers, so the
+ * pairs may be produced lazily, for example from a large manifest.
+ */
+public class BatchTracer {
+
+    public static final int DEFAULT_MISMATCH_LIMIT = 10;
+    public static final int DEFAULT_SLOWEST = 10;
+
+    private final int workers;
+    private int mismatchLimit = DEFAULT_MISMATCH_LIMIT;
+    private int slowest = DEFAULT_SLOWEST;
+    private Supplier<JavaObjectParser> parserFactory = JavaObjectParser::new;
+    private Supplier<? extends Comparator> comparatorFactory = JavaXmlComparator::new;
+
+    /**
+     * Default Constructor for the class BatchTracer.
+     */
+    public BatchTracer() {
+        this(2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for the class BatchTracer.
+     *
+     * @param workers The number of workers.
+     */
+    public BatchTracer(int workers) {
+        if (workers < 1) {
+            throw new IllegalArgumentException("The number of workers must be positive.");
+        }
+        this.workers = workers;
+    }
+
+    /**
+     * Method for setting the maximal number of mismatches reported per pair.
+     *
+     * @param mismatchLimit The limit, zero to report no paths.
+     */
+    public void setMismatchLimit(int mismatchLimit) {
+        this.mismatchLimit = mismatchLimit;
+    }
+
+    /**
+     * Method for setting the number of slowest pairs in the summary.
+     *
+     * @param slowest The number of pairs.
+     */
+    public void setSlowest(int slowest) {
+        this.slowest = slowest;
+    }
+
+    /**
+     * Method for setting how a worker creates its JavaObjectParser, for
+     * example to register additional parser rules.
+     *
+     * @param parserFactory The factory, called once per worker.
+     */
+    public void setParserFactory(Supplier<JavaObjectParser> parserFactory) {
+        this.parserFactory = parserFactory;
+    }
+
+    /**
+     * Method for setting how a worker creates its Comparator. The Comparator
+     * gets the element of the Java object as its first parameter.
+     *
+     * @param comparatorFactory The factory, called once per worker.
+     */
+    public void setComparatorFactory(Supplier<? extends Comparator> comparatorFactory) {
+        this.comparatorFactory = comparatorFactory;
+    }
+
+    /**
+     * Method for tracing pairs. The log is called by the workers, one call at
+     * a time, in the order the pairs are done.
+     *
+     * @param pairs The pairs to be traced.
+     * @param log The consumer of the result of every pair.
+     * @return The summary of the run.
+     * @throws InterruptedException If the thread is interrupted while waiting
+     * for the workers.
+     */
+    public BatchSummary trace(Iterable<TracePair> pairs, Consumer<TraceResult> log) throws InterruptedException {
+        long start = System.nanoTime();
+        Summarizer summarizer = new Summarizer(log, slowest);
+        ThreadLocal<Worker> worker = ThreadLocal.withInitial(Worker::new);
+        ExecutorService executor = Executors.newFixedThreadPool(workers);
+        Semaphore queued = new Semaphore(4 * workers);
+
+        try {
+            for (TracePair pair : pairs) {
+                queued.acquire();
+                executor.execute(() -> {
+                    try {
+                        summarizer.add(worker.get().trace(pair));
+                    } finally {
+                        queued.release();
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+        return summarizer.build(System.nanoTime() - start);
+    }
+
+    /**
+     * Method for tracing all pairs of a directory. A pair is an XML file
+     * name.xml and either a file name.ser with the serialized Java object or
+     * a file name.expected.xml, whose content is compared like the element of
+     * a Java object.
+     *
+     * @param directory The directory.
+     * @return The pairs sorted by name.
+     */
+    public static List<TracePair> fromDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            throw new IllegalArgumentException("Not a directory: " + directory);
+        }
+        Arrays.sort(files);
+
+        List<TracePair> pairs = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(".xml") || name.endsWith(".expected.xml")) {
+                continue;
+            }
+
+            String base = name.substring(0, name.length() - ".xml".length());
+            File serialized = new File(directory, base + ".ser");
+            File expected = new File(directory, base + ".expected.xml");
+            if (serialized.isFile()) {
+                pairs.add(new TracePair(base, source(serialized), file));
+            } else if (expected.isFile()) {
+                pairs.add(new TracePair(base, source(expected), file));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Method for reading the pairs of a manifest. Every line holds the file of
+     * the Java object and the XML file, separated by whitespace. Empty lines
+     * and lines starting with # are skipped. Relative paths are resolved
+     * against the directory of the manifest. The file of the Java object is
+     * either an XML file, compared like the element of a Java object, or a
+     * file with the serialized Java object.
+     *
+     * @param manifest The manifest.
+     * @return The pairs in the order of the manifest.
+     * @throws IOException If any IO errors occur or a line is malformed.
+     */
+    public static List<TracePair> fromManifest(File manifest) throws IOException {
+        File directory = manifest.getAbsoluteFile().getParentFile();
+        List<TracePair> pairs = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(manifest.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            int number = 0;
+            while ((line = reader.readLine()) != null) {
+                number++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+
+                String[] paths = line.split("\\s+");
+                if (paths.length != 2) {
+                    throw new IOException(manifest + ":" + number + ": expected two paths");
+                }
+                File object = resolve(directory, paths[0]);
+                File xml = resolve(directory, paths[1]);
+                pairs.add(new TracePair(paths[1], source(object), xml));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Helper method for resolving a path of a manifest.
+     */
+    private static File resolve(File directory, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(directory, path);
+    }
+
+    /**
+     * Helper method for creating the source of a Java object stored in a
+     * file.
+     *
+     * @param file An XML file or a file with a serialized Java object.
+     * @return The source, which parses or deserializes the file.
+     */
+    private static Callable<Object> source(File file) {
+        if (file.getName().endsWith(".xml")) {
+            return () -> new DomXmlParser(file).getParseResult();
+        }
+        return () -> {
+            try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file));
+                    ObjectInputStream objectStream = new ObjectInputStream(inputStream)) {
+                return objectStream.readObject();
+            }
+        };
+    }
+
+    /**
+     * Method for tracing a directory or a manifest from the command line.
+     * Every result is printed as soon as it is known, the summary is printed
+     * last. The exit code is 1 if any pair failed.
+     *
+     * @param args The options -workers n, -mismatches n and -slowest n,
+     * followed by the directory or the manifest.
+     * @throws Exception If the pairs can not be read.
+     */
+    public static void main(String[] args) throws Exception {
+        BatchTracer tracer = null;
+        int mismatches = DEFAULT_MISMATCH_LIMIT;
+        int slowest = DEFAULT_SLOWEST;
+        int i = 0;
+        try {
+            for (; i < args.length - 1; i += 2) {
+                switch (args[i]) {
+                    case "-workers":
+                        tracer = new BatchTracer(Integer.parseInt(args[i + 1]));
+                        break;
+                    case "-mismatches":
+                        mismatches = Integer.parseInt(args[i + 1]);
+                        break;
+                    case "-slowest":
+                        slowest = Integer.parseInt(args[i + 1]);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException ex) {
+            System.err.println(ex.getMessage());
+            i = -1;
+        }
+        if (i != args.length - 1) {
+            System.err.println("Usage: BatchTracer [-workers n] [-mismatches n] [-slowest n] directory|manifest");
+            System.exit(2);
+        }
+
+        if (tracer == null) {
+            tracer = new BatchTracer();
+        }
+        tracer.setMismatchLimit(mismatches);
+        tracer.setSlowest(slowest);
+
+        File input = new File(args[i]);
+        List<TracePair> pairs = input.isDirectory() ? fromDirectory(input) : fromManifest(input);
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        BatchSummary summary = tracer.trace(pairs, result -> {
+            out.println(result);
+            out.flush();
+        });
+        out.println(summary);
+        out.flush();
+
+        System.exit(summary.getMismatches() + summary.getErrors() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Intern helper class holding the parser, comparator and SymbolTable of a
+     * worker.
+     */
+    private class Worker {
+
+        private final SymbolTable symbols = new SymbolTable();
+        private final JavaObjectParser parser = parserFactory.get();
+        private final Comparator comparator = comparatorFactory.get();
+
+        public Worker() {
+            parser.setSymbolTable(symbols);
+        }
+
+        public TraceResult trace(TracePair pair) {
+            long start = System.nanoTime();
+            long parsed = start;
+            try {
+                Object object = pair.getSource().call();
+                Element expected = object instanceof Element ? (Element) object : parser.getObjectElement(object);
+                ObjectElement actual = new DomXmlParser(pair.getXmlFile(), symbols).getParseResult();
+                parsed = System.nanoTime();
+
+                // findMismatches() compares the pair itself first, so a
+                // failing pair is not compared once more before.
+                List<Mismatch> mismatches = Collections.emptyList();
+                boolean match;
+                if (mismatchLimit > 0) {
+                    mismatches = comparator.findMismatches(expected, actual, mismatchLimit);
+                    match = mismatches.isEmpty();
+                } else {
+                    match = comparator.compare(expected, actual);
+                }
+                return new TraceResult(pair, match ? TraceResult.Status.MATCH : TraceResult.Status.MISMATCH, mismatches, null,
+                        parsed - start, System.nanoTime() - parsed);
+            } catch (Exception | StackOverflowError | OutOfMemoryError ex) {
+                long end = System.nanoTime();
+                return new TraceResult(pair, TraceResult.Status.ERROR, Collections.emptyList(), ex.toString(),
+                        parsed - start, end - parsed);
+            }
+        }
+    }
+
+    /**
+     * Intern helper class collecting the results of the workers.
+     */
+    private static class Summarizer {
+
+        private final Consumer<TraceResult> log;
+        private final int slowest;
+        private final PriorityQueue<TraceResult> slowestQueue = new PriorityQueue<>(
+                (r1, r2) -> Long.compare(r1.getTotalNanos(), r2.getTotalNanos()));
+        private int matches;
+        private int mismatches;
+        private int errors;
+        private long bytes;
+
+        public Summarizer(Consumer<TraceResult> log, int slowest) {
+            this.log = log;
+            this.slowest = slowest;
+        }
+
+        public synchronized void add(TraceResult result) {
+            switch (result.getStatus()) {
+                case MATCH:
+                    matches++;
+                    break;
+                case MISMATCH:
+                    mismatches++;
+                    break;
+                default:
+                    errors++;
+                    break;
+            }
+            bytes += result.getPair().getXmlFile().length();
+
+            if (slowest > 0) {
+                slowestQueue.add(result);
+                if (slowestQueue.size() > slowest) {
+                    slowestQueue.poll();
+                }
+            }
+
+            log.accept(result);
+        }
+
+        public synchronized BatchSummary build(long elapsedNanos) {
+            List<TraceResult> results = new ArrayList<>(slowestQueue);
+            results.sort((r1, r2) -> Long.compare(r2.getTotalNanos(), r1.getTotalNanos()));
+            return new BatchSummary(matches, mismatches, errors, bytes, elapsedNanos, results);
+        }
+    }
+}
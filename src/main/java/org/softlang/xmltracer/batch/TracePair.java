@@ -0,0 +1,43 @@
+package org.softlang.xmltracer.batch;
+
+import java.io.File;
+import java.util.concurrent.Callable;
+
+/**
+ * A pair to be traced by the BatchTracer: a source of the Java object and the
+ * XML file the object is compared with. The source may also return an
+ * Element, which is compared as it is, like the parsed tree of an expected
+ * XML file.
+ */
+public class TracePair {
+
+    private final String name;
+    private final Callable<Object> source;
+    private final File xmlFile;
+
+    /**
+     * Constructor for the class TracePair.
+     *
+     * @param name The name of the pair in the results.
+     * @param source The source of the Java object, which is called by a
+     * worker.
+     * @param xmlFile The XML file.
+     */
+    public TracePair(String name, Callable<Object> source, File xmlFile) {
+        this.name = name;
+        this.source = source;
+        this.xmlFile = xmlFile;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Callable<Object> getSource() {
+        return source;
+    }
+
+    public File getXmlFile() {
+        return xmlFile;
+    }
+}
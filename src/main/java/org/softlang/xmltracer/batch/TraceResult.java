@@ -0,0 +1,90 @@
+package org.softlang.xmltracer.batch;
+
+import java.util.List;
+import org.softlang.xmltracer.comparator.Mismatch;
+
+/**
+ * The result of tracing a single pair.
+ */
+public class TraceResult {
+
+    public enum Status {
+        MATCH, MISMATCH, ERROR
+    }
+
+    private final TracePair pair;
+    private final Status status;
+    private final List<Mismatch> mismatches;
+    private final String error;
+    private final long parseNanos;
+    private final long compareNanos;
+
+    public TraceResult(TracePair pair, Status status, List<Mismatch> mismatches, String error, long parseNanos, long compareNanos) {
+        this.pair = pair;
+        this.status = status;
+        this.mismatches = mismatches;
+        this.error = error;
+        this.parseNanos = parseNanos;
+        this.compareNanos = compareNanos;
+    }
+
+    public TracePair getPair() {
+        return pair;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Method for returning the first mismatches of a pair which does not
+     * match.
+     *
+     * @return The mismatches, empty for other results.
+     */
+    public List<Mismatch> getMismatches() {
+        return mismatches;
+    }
+
+    /**
+     * Method for returning the error of a pair which could not be traced.
+     *
+     * @return The error message or null.
+     */
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * Method for returning the time for creating and parsing the object and
+     * parsing the XML file.
+     *
+     * @return The time in nanoseconds.
+     */
+    public long getParseNanos() {
+        return parseNanos;
+    }
+
+    public long getCompareNanos() {
+        return compareNanos;
+    }
+
+    public long getTotalNanos() {
+        return parseNanos + compareNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(status).append(' ').append(pair.getName())
+                .append(String.format(" %.1f ms", getTotalNanos() / 1e6));
+
+        if (error != null) {
+            builder.append(": ").append(error);
+        }
+        for (Mismatch mismatch : mismatches) {
+            builder.append("\n    ").append(mismatch);
+        }
+        return builder.toString();
+    }
+}
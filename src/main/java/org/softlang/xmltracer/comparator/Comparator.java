@@ -1,53 +1,275 @@
 package org.softlang.xmltracer.comparator;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiPredicate;
+import java.util.function.ToIntFunction;
 import org.softlang.xmltracer.data.ArrayElement;
 import org.softlang.xmltracer.data.CollectionElement;
+import org.softlang.xmltracer.data.CompactTree;
 import org.softlang.xmltracer.data.Element;
 import org.softlang.xmltracer.data.ListElement;
 import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveArray;
 import org.softlang.xmltracer.data.PrimitiveElement;
 import org.softlang.xmltracer.data.SetElement;
 
 public class Comparator {
 
-    private final Set<ComparatorRule> rules = new HashSet<>();
+    private final List<ComparatorRule> rules = new ArrayList<>();
+    private final Map<Class<?>, Map<Class<?>, ComparatorRule[]>> index = new ConcurrentHashMap<>();
+    private volatile ToIntFunction<Element> fingerprint;
+
+    private volatile ForkJoinPool pool;
+    private volatile int parallelThreshold;
+
+    /**
+     * The maximal number of member pair results kept per comparison, 0 if
+     * the memo is disabled.
+     */
+    private volatile int memoCapacity;
+    private final LongAdder memoHits = new LongAdder();
+    private final LongAdder memoMisses = new LongAdder();
+    private final LongAdder memoEvictions = new LongAdder();
+    private final LongAdder comparedPairs = new LongAdder();
+    private final LongAdder savedPairs = new LongAdder();
+
+    /**
+     * Collections with fewer members are matched by the plain nested loop.
+     */
+    private static final int BUCKET_THRESHOLD = 16;
+
+    /**
+     * The cancellation of the parallel comparison the current thread works on.
+     */
+    private static final ThreadLocal<Cancellation> CANCELLATION = new ThreadLocal<>();
+
+    /**
+     * The pairs still to be compared by the current thread. Objects, lists and
+     * arrays put the pairs of their children on this list instead of
+     * comparing them recursively, so deep trees do not need a deep stack.
+     */
+    private final ThreadLocal<WorkList> workList = ThreadLocal.withInitial(WorkList::new);
+
+    /**
+     * The built-in rule for PrimitiveElements, if comparePrimitive is not
+     * overridden. CompactTrees compare values of such pairs directly.
+     */
+    private final ComparatorRule primitiveRule;
+
+    private final Expansion push = (e1, e2, work) -> {
+        work.push(e1, e2);
+        return true;
+    };
 
     public Comparator() {
-        registerComparatorRule((e1, e2) -> e1.getClass() == ObjectElement.class && e1.getClass() == e2.getClass(),
-                (e1, e2) -> compareObject((ObjectElement) e1, (ObjectElement) e2));
+        // Children of the built-in types are put on the work list, unless a
+        // subclass overrides how they are compared.
+        boolean listExpandable = !overrides("compareList", ListElement.class);
+
+        addRule(new ComparatorRule(0, ObjectElement.class, ObjectElement.class, null,
+                (e1, e2) -> compareObject((ObjectElement) e1, (ObjectElement) e2),
+                overrides("compareObject", ObjectElement.class) ? null : this::expandObject));
+
+        ComparatorRule primitive = new ComparatorRule(0, PrimitiveElement.class, PrimitiveElement.class, null,
+                (e1, e2) -> comparePrimitive((PrimitiveElement) e1, (PrimitiveElement) e2), null);
+        addRule(primitive);
+        primitiveRule = overrides("comparePrimitive", PrimitiveElement.class) ? null : primitive;
+
+        registerComparatorRule(CollectionElement.class, CollectionElement.class, this::compareCollection);
+
+        registerComparatorRule(SetElement.class, SetElement.class, this::compareSet);
+
+        addRule(new ComparatorRule(0, ListElement.class, ListElement.class, null,
+                (e1, e2) -> compareList((ListElement) e1, (ListElement) e2),
+                listExpandable ? this::expandList : null));
+
+        addRule(new ComparatorRule(0, ArrayElement.class, ArrayElement.class, null,
+                (e1, e2) -> compareArray((ArrayElement) e1, (ArrayElement) e2),
+                listExpandable && !overrides("compareArray", ArrayElement.class) ? this::expandList : null));
+
+        // The built-in rules match structurally equal elements only.
+        setFingerprint(Element::hashCode);
+    }
+
+    /**
+     * Method for setting the fingerprint used to bucket the members of large
+     * collections before matching them. Elements which the rules consider
+     * equal must have the same fingerprint. Registering a rule removes the
+     * fingerprint, since it may not fit the new rule.
+     *
+     * @param fingerprint The fingerprint function, or null for matching
+     * collections without buckets.
+     */
+    public final void setFingerprint(ToIntFunction<Element> fingerprint) {
+        this.fingerprint = fingerprint;
+    }
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == PrimitiveElement.class && e1.getClass() == e2.getClass(),
-                (e1, e2) -> comparePrimitive((PrimitiveElement) e1, (PrimitiveElement) e2));
+    /**
+     * Method for enabling the parallel comparison of large objects and lists.
+     * The children of objects and the items of lists with at least threshold
+     * entries are compared by tasks of the given pool. As soon as one pair
+     * does not match, the outstanding tasks of the comparison are cancelled.
+     * Registered rules must be thread safe when the parallel comparison is
+     * enabled.
+     *
+     * @param pool The pool for the comparison tasks, or null for comparing on
+     * the calling thread only.
+     * @param threshold The minimal number of entries compared in parallel.
+     */
+    public final void setParallelism(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The threshold must be positive.");
+        }
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == CollectionElement.class && e1.getClass() == e2.getClass(),
-                (e1, e2) -> compareCollection((CollectionElement) e1, (CollectionElement) e2));
+        this.parallelThreshold = threshold;
+        this.pool = pool;
+    }
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == SetElement.class && e1.getClass() == e2.getClass(),
-                (e1, e2) -> compareSet((SetElement) e1, (SetElement) e2));
+    /**
+     * Method for enabling the memo of member pair results. Collections compare
+     * every member with the candidates of the other collection, so the same
+     * pair of nested elements is often compared again. With the memo, the
+     * result of a member pair is kept by its element identities until the
+     * outermost comparison ends, and the least recently used results are
+     * evicted beyond the capacity. A result which relied on pairs of a
+     * comparison that failed later is removed with them.
+     *
+     * @param capacity The maximal number of results per comparison and
+     * thread, or 0 for disabling the memo.
+     */
+    public final void setMemoCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("The capacity must not be negative.");
+        }
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == ListElement.class && e1.getClass() == e2.getClass(),
-                (e1, e2) -> compareList((ListElement) e1, (ListElement) e2));
+        this.memoCapacity = capacity;
+    }
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == ArrayElement.class && e1.getClass() == e2.getClass(),
-                (e1, e2) -> compareArray((ArrayElement) e1, (ArrayElement) e2));
+    /**
+     * Method for returning the counters of the memo, summed up over all
+     * finished comparisons since the last reset. The number of compared pairs
+     * is also counted without the memo.
+     *
+     * @return The counters.
+     */
+    public MemoStatistics getMemoStatistics() {
+        return new MemoStatistics(memoHits.sum(), memoMisses.sum(), memoEvictions.sum(),
+                comparedPairs.sum(), savedPairs.sum());
+    }
 
+    /**
+     * Method for resetting the counters of the memo.
+     */
+    public void resetMemoStatistics() {
+        memoHits.reset();
+        memoMisses.reset();
+        memoEvictions.reset();
+        comparedPairs.reset();
+        savedPairs.reset();
     }
 
     /**
-     * Method for registering Comparator rules.
+     * Helper method to check if a subclass overrides a compare method.
+     *
+     * @param name The name of the compare method.
+     * @param type The type of both parameters.
+     * @return True if the method is overridden, else false.
+     */
+    private boolean overrides(String name, Class<?> type) {
+        try {
+            return getClass().getMethod(name, type, type).getDeclaringClass() != Comparator.class;
+        } catch (NoSuchMethodException ex) {
+            return true;
+        }
+    }
+
+    /**
+     * Method for registering Comparator rules. The check is evaluated for
+     * every element pair, so rules for fixed element types should be
+     * registered with their classes instead.
      *
      * @param check Checks if check can compare the element pair.
      * @param rule Compares the element pair.
      */
     public final void registerComparatorRule(BiPredicate<Element, Element> check, BiPredicate<Element, Element> rule) {
-        rules.add(new ComparatorRule(check, rule));
+        registerComparatorRule(0, check, rule);
+    }
+
+    /**
+     * Method for registering Comparator rules with a priority. Rules with a
+     * higher priority are tried first, rules with the same priority in the
+     * order of their registration.
+     *
+     * @param priority The priority of the rule.
+     * @param check Checks if check can compare the element pair.
+     * @param rule Compares the element pair.
+     */
+    public final void registerComparatorRule(int priority, BiPredicate<Element, Element> check, BiPredicate<Element, Element> rule) {
+        addRule(new ComparatorRule(priority, null, null, check, rule, null));
+    }
+
+    /**
+     * Method for registering Comparator rules for a pair of element classes.
+     * The rule is used for element pairs of exactly these classes.
+     *
+     * @param <A> The type of the first element.
+     * @param <B> The type of the second element.
+     * @param type1 The class of the first element.
+     * @param type2 The class of the second element.
+     * @param rule Compares the element pair.
+     */
+    public final <A extends Element, B extends Element> void registerComparatorRule(Class<A> type1, Class<B> type2, BiPredicate<? super A, ? super B> rule) {
+        registerComparatorRule(0, type1, type2, rule);
+    }
+
+    /**
+     * Method for registering Comparator rules for a pair of element classes
+     * with a priority. Rules with a higher priority are tried first, rules with
+     * the same priority in the order of their registration.
+     *
+     * @param <A> The type of the first element.
+     * @param <B> The type of the second element.
+     * @param priority The priority of the rule.
+     * @param type1 The class of the first element.
+     * @param type2 The class of the second element.
+     * @param rule Compares the element pair.
+     */
+    @SuppressWarnings("unchecked")
+    public final <A extends Element, B extends Element> void registerComparatorRule(int priority, Class<A> type1, Class<B> type2, BiPredicate<? super A, ? super B> rule) {
+        addRule(new ComparatorRule(priority, type1, type2, null, (BiPredicate<Element, Element>) rule, null));
+    }
+
+    /**
+     * Helper method for adding a rule behind all rules with the same or a
+     * higher priority.
+     *
+     * @param rule The rule to be added.
+     */
+    private synchronized void addRule(ComparatorRule rule) {
+        int position = 0;
+        while (position < rules.size() && rules.get(position).getPriority() >= rule.getPriority()) {
+            position++;
+        }
+        rules.add(position, rule);
+        index.clear();
+        fingerprint = null;
     }
 
     /**
@@ -58,13 +280,416 @@ public class Comparator {
      * @return True if the elements could be matched, else false.
      */
     public boolean compare(Element ele1, Element ele2) {
+        return run(ele1, ele2, push);
+    }
+
+    /**
+     * Method for finding the differences between two elements. The elements
+     * are compared like by compare() first, and only if they do not match they
+     * are compared a second time, collecting the paths to the differences.
+     * Inside objects, lists and arrays every difference is reported at the
+     * innermost elements. Members of unordered collections without a partner
+     * are reported with their position, or are compared further if a single
+     * member is left on each side.
+     *
+     * @param ele1 First element.
+     * @param ele2 Second element.
+     * @param limit The maximal number of mismatches to be found.
+     * @return The mismatches in the order of the first element, empty if the
+     * elements could be matched.
+     */
+    public List<Mismatch> findMismatches(Element ele1, Element ele2, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("The limit must be positive.");
+        }
+
+        if (compare(ele1, ele2)) {
+            return Collections.emptyList();
+        }
+
+        List<Mismatch> mismatches = new ArrayList<>();
+        Map<ObjectElement, ObjectElement> visited = new IdentityHashMap<>();
+        Deque<Step> stack = new ArrayDeque<>();
+        stack.push(new Step(null, "", ele1, ele2));
+
+        while (!stack.isEmpty() && mismatches.size() < limit) {
+            Step step = stack.pop();
+            Element e1 = step.first;
+            Element e2 = step.second;
+
+            if (e1 == null || e2 == null) {
+                mismatches.add(step.mismatch(null, "missing in the " + (e1 == null ? "first" : "second") + " element"));
+                continue;
+            }
+
+            ComparatorRule rule = findRule(e1, e2);
+            if (rule == null) {
+                mismatches.add(step.mismatch(null, "no rule for " + e1.getClass().getSimpleName()
+                        + " and " + e2.getClass().getSimpleName()));
+                continue;
+            }
+
+            List<Step> children = new ArrayList<>();
+            if (rule.getExpansion() != null && e1 instanceof ObjectElement) {
+                if (visited.get(e1) == e2) {
+                    continue;
+                }
+                visited.put((ObjectElement) e1, (ObjectElement) e2);
+
+                Map<String, Element> map1 = ((ObjectElement) e1).getElementMap();
+                Map<String, Element> map2 = ((ObjectElement) e2).getElementMap();
+                Set<String> keys = new TreeSet<>(map1.keySet());
+                keys.addAll(map2.keySet());
+                for (String key : keys) {
+                    children.add(new Step(step, "." + key, map1.get(key), map2.get(key)));
+                }
+            } else if (rule.getExpansion() != null) {
+                List<Element> list1 = ((ListElement) e1).getElementList();
+                List<Element> list2 = ((ListElement) e2).getElementList();
+                if (list1.size() != list2.size()) {
+                    mismatches.add(step.mismatch(rule, "sizes " + list1.size() + " and " + list2.size() + " differ"));
+                    continue;
+                }
+                for (int i = 0; i < list1.size(); i++) {
+                    children.add(new Step(step, "[" + i + "]", list1.get(i), list2.get(i)));
+                }
+            } else {
+                // Rules ending with compareLater() hand over their pair.
+                WorkList work = workList.get();
+                List<Element> deferred = new ArrayList<>();
+                work.deferred = deferred;
+                boolean result;
+                try {
+                    result = rule.getRule().test(e1, e2);
+                } finally {
+                    work.deferred = null;
+                }
+
+                if (result) {
+                    for (int i = 0; i < deferred.size(); i += 2) {
+                        children.add(new Step(step, "", deferred.get(i), deferred.get(i + 1)));
+                    }
+                } else if (!(e1 instanceof CollectionElement && e2 instanceof CollectionElement)
+                        || !findUnmatched(step, (CollectionElement) e1, (CollectionElement) e2, children, mismatches)) {
+                    mismatches.add(step.mismatch(rule, "rule failed"));
+                }
+            }
+
+            for (int i = children.size() - 1; i >= 0; i--) {
+                stack.push(children.get(i));
+            }
+        }
+
+        return mismatches.size() > limit ? new ArrayList<>(mismatches.subList(0, limit)) : mismatches;
+    }
+
+    /**
+     * Helper method for finding the members of two collections without a
+     * partner. A single member left on each side is compared further.
+     *
+     * @param step The step of the collections.
+     * @param ele1 First collection.
+     * @param ele2 Second collection.
+     * @param children The list for the pair to be compared further.
+     * @param mismatches The list for the members without a partner.
+     * @return True if members without a partner were found, else false.
+     */
+    private boolean findUnmatched(Step step, CollectionElement ele1, CollectionElement ele2, List<Step> children, List<Mismatch> mismatches) {
+        boolean ordered = ele1 instanceof ListElement && ele2 instanceof ListElement;
+        List<Element> members1 = new ArrayList<>(ele1.getCollection());
+        List<Element> members2 = new ArrayList<>(ele2.getCollection());
+        List<Integer> unmatched1 = new ArrayList<>();
+        boolean[] used = new boolean[members2.size()];
+
+        for (int i = 0; i < members1.size(); i++) {
+            int partner = -1;
+            for (int j = 0; j < members2.size() && partner < 0; j++) {
+                if (!used[j] && (!ordered || i == j) && compare(members1.get(i), members2.get(j))) {
+                    partner = j;
+                }
+            }
+
+            if (partner < 0) {
+                unmatched1.add(i);
+            } else {
+                used[partner] = true;
+            }
+        }
+
+        List<Integer> unmatched2 = new ArrayList<>();
+        for (int j = 0; j < used.length; j++) {
+            if (!used[j]) {
+                unmatched2.add(j);
+            }
+        }
+
+        if (unmatched1.isEmpty() && unmatched2.isEmpty()) {
+            return false;
+        }
+
+        if (unmatched1.size() == 1 && unmatched2.size() == 1 && (!ordered || unmatched1.equals(unmatched2))) {
+            int i = unmatched1.get(0);
+            children.add(new Step(step, "[" + i + "]", members1.get(i), members2.get(unmatched2.get(0))));
+            return true;
+        }
+
+        for (int i : unmatched1) {
+            mismatches.add(new Step(step, "[" + i + "]", members1.get(i), null).mismatch(null, "no partner in the second element"));
+        }
+        for (int j : unmatched2) {
+            mismatches.add(new Step(step, "[" + j + "]", null, members2.get(j)).mismatch(null, "no partner in the first element"));
+        }
+        return true;
+    }
+
+    /**
+     * Compare method for CompactTrees. Object, list, array and primitive nodes
+     * are compared on the arrays of the trees without creating Elements, as
+     * long as the built-in rules apply to them. Other rules get the Element
+     * views of their nodes. CompactTrees are always compared on the calling
+     * thread.
+     *
+     * @param tree1 First tree.
+     * @param tree2 Second tree.
+     * @return True if the trees could be matched, else false.
+     */
+    public boolean compare(CompactTree tree1, CompactTree tree2) {
+        int[] pairs = new int[64];
+        int size = 0;
+        pairs[size++] = 0;
+        pairs[size++] = 0;
+
+        while (size > 0) {
+            int node2 = pairs[--size];
+            int node1 = pairs[--size];
+            Element ele1 = null;
+            Element ele2 = null;
+
+            ComparatorRule rule = null;
+            for (ComparatorRule candidate : getRules(tree1.getType(node1), tree2.getType(node2))) {
+                if (candidate.getCheck() != null) {
+                    if (ele1 == null) {
+                        ele1 = tree1.getElement(node1);
+                        ele2 = tree2.getElement(node2);
+                    }
+                    if (!candidate.getCheck().test(ele1, ele2)) {
+                        continue;
+                    }
+                }
+                rule = candidate;
+                break;
+            }
+
+            if (rule == null) {
+                return false;
+            }
+
+            if (rule == primitiveRule) {
+                if (!tree1.valueEquals(node1, tree2, node2)) {
+                    return false;
+                }
+            } else if (rule.getExpansion() != null) {
+                int count = tree1.getChildCount(node1);
+                if (count != tree2.getChildCount(node2)) {
+                    return false;
+                }
+
+                if (pairs.length < size + 2 * count) {
+                    pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, size + 2 * count));
+                }
+
+                boolean object = tree1.getKind(node1) == CompactTree.OBJECT;
+                int child2 = tree2.getFirstChild(node2);
+                for (int child1 = tree1.getFirstChild(node1); child1 >= 0; child1 = tree1.getNextSibling(child1)) {
+                    if (object) {
+                        child2 = tree2.findChild(node2, tree1.getName(child1));
+                        if (child2 < 0) {
+                            return false;
+                        }
+                    }
+
+                    pairs[size++] = child1;
+                    pairs[size++] = child2;
+
+                    if (!object) {
+                        child2 = tree2.getNextSibling(child2);
+                    }
+                }
+            } else {
+                if (ele1 == null) {
+                    ele1 = tree1.getElement(node1);
+                    ele2 = tree2.getElement(node2);
+                }
+                if (!rule.getRule().test(ele1, ele2)) {
+                    return false;
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Method for rules which end with comparing another element pair, like
+     * the comparison of an element wrapped into a collection. While a
+     * comparison is running, the pair is put on its work list and true is
+     * returned, so the final result is only known when the running comparison
+     * ends. Therefore the result has to be returned by the rule as it is.
+     *
+     * @param ele1 First element.
+     * @param ele2 Second element.
+     * @return True if the pair was put on the work list or could be matched,
+     * else false.
+     */
+    protected final boolean compareLater(Element ele1, Element ele2) {
+        WorkList work = workList.get();
+        if (work.depth == 0) {
+            if (work.deferred != null) {
+                work.deferred.add(ele1);
+                work.deferred.add(ele2);
+                return true;
+            }
+            return compare(ele1, ele2);
+        }
+
+        work.push(ele1, ele2);
+        return true;
+    }
+
+    /**
+     * Helper method for running a comparison on the work list of the current
+     * thread. Comparisons started by rules run on the same list above the
+     * pairs of the comparison which started them.
+     *
+     * @param ele1 First element.
+     * @param ele2 Second element.
+     * @param start The expansion of the first pair.
+     * @return True if all pairs could be matched, else false.
+     */
+    private boolean run(Element ele1, Element ele2, Expansion start) {
+        WorkList work = workList.get();
+        int base = work.size;
+        int undoBase = work.undoSize;
+        int resultUndoBase = work.resultUndoSize;
+        boolean result = false;
+
+        if (work.depth == 0) {
+            work.memoCapacity = memoCapacity;
+        }
+
+        work.depth++;
+        try {
+            result = start.expand(ele1, ele2, work) && drain(work, base);
+            return result;
+        } finally {
+            work.truncate(base);
+            if (!result) {
+                work.rollback(undoBase, resultUndoBase);
+            }
+            if (--work.depth == 0) {
+                addStatistics(work);
+                work.clearMemo();
+            }
+        }
+    }
+
+    /**
+     * Helper method for comparing the pairs on the work list down to a base.
+     *
+     * @param work The work list.
+     * @param base The size of the work list below the current comparison.
+     * @return True if all pairs could be matched, else false.
+     */
+    private boolean drain(WorkList work, int base) {
+        while (work.size > base) {
+            Element ele1 = work.firsts[--work.size];
+            Element ele2 = work.seconds[work.size];
+            work.firsts[work.size] = null;
+            work.seconds[work.size] = null;
+            work.compared++;
+
+            if (isCancelled()) {
+                return false;
+            }
+
+            ComparatorRule rule = findRule(ele1, ele2);
+            if (rule == null) {
+                return false;
+            }
+
+            boolean result = rule.getExpansion() != null
+                    ? rule.getExpansion().expand(ele1, ele2, work)
+                    : rule.getRule().test(ele1, ele2);
+            if (!result) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Helper method for finding the rule which compares an element pair.
+     *
+     * @param ele1 First element.
+     * @param ele2 Second element.
+     * @return The rule or null if no rule can compare the pair.
+     */
+    private ComparatorRule findRule(Element ele1, Element ele2) {
+        for (ComparatorRule rule : getRules(ele1.getClass(), ele2.getClass())) {
+            if (rule.getCheck() == null || rule.getCheck().test(ele1, ele2)) {
+                return rule;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Helper method for looking up the rules which may compare a pair of
+     * element classes. The lookup is computed once per class pair.
+     *
+     * @param type1 The class of the first element.
+     * @param type2 The class of the second element.
+     * @return The candidate rules in the order they have to be tried.
+     */
+    private ComparatorRule[] getRules(Class<?> type1, Class<?> type2) {
+        Map<Class<?>, ComparatorRule[]> byType2 = index.get(type1);
+        if (byType2 == null) {
+            byType2 = index.computeIfAbsent(type1, k -> new ConcurrentHashMap<>());
+        }
+
+        ComparatorRule[] candidates = byType2.get(type2);
+        if (candidates == null) {
+            candidates = computeRules(type1, type2);
+            byType2.put(type2, candidates);
+        }
+
+        return candidates;
+    }
+
+    /**
+     * Helper method for computing the rules which may compare a pair of
+     * element classes. Rules after the first matching typed rule can never be
+     * reached and are left out.
+     *
+     * @param type1 The class of the first element.
+     * @param type2 The class of the second element.
+     * @return The candidate rules in the order they have to be tried.
+     */
+    private synchronized ComparatorRule[] computeRules(Class<?> type1, Class<?> type2) {
+        List<ComparatorRule> candidates = new ArrayList<>();
+
         for (ComparatorRule rule : rules) {
-            if (rule.getCheck().test(ele1, ele2)) {
-                return rule.getRule().test(ele1, ele2);
+            if (rule.getCheck() != null) {
+                candidates.add(rule);
+            } else if (rule.getType1() == type1 && rule.getType2() == type2) {
+                candidates.add(rule);
+                break;
             }
         }
 
-        return false;
+        return candidates.toArray(new ComparatorRule[candidates.size()]);
     }
 
     /**
@@ -86,20 +711,57 @@ public class Comparator {
      * @return True if the elements could be matched, else false.
      */
     public boolean compareObject(ObjectElement ele1, ObjectElement ele2) {
-        if (ele1.getElementMap().size() != ele2.getElementMap().size()) {
+        return run(ele1, ele2, this::expandObject);
+    }
+
+    /**
+     * Helper method for putting the children of an ObjectElement pair on the
+     * work list.
+     *
+     * @param e1 First element.
+     * @param e2 Second element.
+     * @param work The work list.
+     * @return False if the elements can not be matched, else true.
+     */
+    private boolean expandObject(Element e1, Element e2, WorkList work) {
+        Map<String, Element> map1 = ((ObjectElement) e1).getElementMap();
+        Map<String, Element> map2 = ((ObjectElement) e2).getElementMap();
+
+        if (map1.size() != map2.size()) {
             return false;
         }
 
-        for (Map.Entry<String, Element> entry : ele1.getElementMap().entrySet()) {
-            Element otherEle = ele2.getElementMap().get(entry.getKey());
+        // Shared subgraphs lead to the same pair of elements again.
+        if (work.matched.get(e1) == e2) {
+            return true;
+        }
+        work.remember((ObjectElement) e1, (ObjectElement) e2);
 
-            if (otherEle == null) {
-                return false;
+        if (isParallel(map1.size())) {
+            Element[] elements1 = new Element[map1.size()];
+            Element[] elements2 = new Element[elements1.length];
+
+            int i = 0;
+            for (Map.Entry<String, Element> entry : map1.entrySet()) {
+                elements1[i] = entry.getValue();
+                elements2[i] = map2.get(entry.getKey());
+
+                if (elements2[i++] == null) {
+                    return false;
+                }
             }
 
-            if (!compare(entry.getValue(), otherEle)) {
+            return compareParallel(elements1, elements2);
+        }
+
+        for (Map.Entry<String, Element> entry : map1.entrySet()) {
+            Element otherEle = map2.get(entry.getKey());
+
+            if (otherEle == null) {
                 return false;
             }
+
+            work.push(entry.getValue(), otherEle);
         }
 
         return true;
@@ -117,23 +779,109 @@ public class Comparator {
             return false;
         }
 
-        List<Element> tempList = new ArrayList<>(ele2.getCollection());
+        ToIntFunction<Element> bucketing = fingerprint;
+        if (bucketing == null || ele1.getCollection().size() < BUCKET_THRESHOLD) {
+            List<Element> tempList = new ArrayList<>(ele2.getCollection());
 
-        NEXT:
-        for (Element ele : ele1.getCollection()) {
-            for (Iterator<Element> iterator = tempList.iterator(); iterator.hasNext();) {
-                Element otherEle = iterator.next();
-                if (compare(ele, otherEle)) {
-                    iterator.remove();
-                    continue NEXT;
+            for (Element ele : ele1.getCollection()) {
+                if (!removeMatch(ele, tempList)) {
+                    return false;
                 }
             }
-            return false;
+
+            return true;
+        }
+
+        // Only members with the same fingerprint can match, so every member
+        // gets the same partner as with a single candidate list.
+        Map<Integer, List<Element>> buckets = new HashMap<>();
+        for (Element ele : ele2.getCollection()) {
+            buckets.computeIfAbsent(bucketing.applyAsInt(ele), k -> new ArrayList<>()).add(ele);
+        }
+
+        for (Element ele : ele1.getCollection()) {
+            List<Element> bucket = buckets.get(bucketing.applyAsInt(ele));
+            if (bucket == null || !removeMatch(ele, bucket)) {
+                return false;
+            }
         }
 
         return true;
     }
 
+    /**
+     * Helper method for finding and removing the first candidate which
+     * matches an element.
+     *
+     * @param ele The element to be matched.
+     * @param candidates The remaining candidates.
+     * @return True if a matching candidate was found and removed, else false.
+     */
+    private boolean removeMatch(Element ele, List<Element> candidates) {
+        for (Iterator<Element> iterator = candidates.iterator(); iterator.hasNext();) {
+            Element otherEle = iterator.next();
+            if (compareMember(ele, otherEle)) {
+                iterator.remove();
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Helper method for comparing a member pair of two collections with the
+     * memo of the running comparison, if it is enabled. Results of cancelled
+     * parallel comparisons are not kept.
+     *
+     * @param ele1 First element.
+     * @param ele2 Second element.
+     * @return True if the elements could be matched, else false.
+     */
+    private boolean compareMember(Element ele1, Element ele2) {
+        WorkList work = workList.get();
+        if (work.memoCapacity == 0 || work.depth == 0) {
+            return compare(ele1, ele2);
+        }
+
+        MemoKey key = new MemoKey(ele1, ele2);
+        MemoResult memo = work.results.get(key);
+        if (memo != null) {
+            work.hits++;
+            work.saved += memo.cost;
+            return memo.result;
+        }
+
+        work.misses++;
+        long before = work.compared;
+        boolean result = compare(ele1, ele2);
+        if (!isCancelled()) {
+            work.store(key, new MemoResult(result, work.compared - before));
+        }
+        return result;
+    }
+
+    /**
+     * Helper method for adding the counters of a finished comparison to the
+     * statistics.
+     *
+     * @param work The work list of the comparison.
+     */
+    private void addStatistics(WorkList work) {
+        comparedPairs.add(work.compared);
+        if (work.hits != 0 || work.misses != 0) {
+            memoHits.add(work.hits);
+            memoMisses.add(work.misses);
+            memoEvictions.add(work.evictions);
+            savedPairs.add(work.saved);
+        }
+        work.compared = 0;
+        work.hits = 0;
+        work.misses = 0;
+        work.evictions = 0;
+        work.saved = 0;
+    }
+
     /**
      * Method for comparing a SetElement pair.
      *
@@ -146,19 +894,58 @@ public class Comparator {
     }
 
     public boolean compareList(ListElement ele1, ListElement ele2) {
-        if (ele1.getCollection().size() != ele2.getCollection().size()) {
+        return run(ele1, ele2, this::expandList);
+    }
+
+    /**
+     * Helper method for putting the items of a ListElement pair on the work
+     * list.
+     *
+     * @param e1 First element.
+     * @param e2 Second element.
+     * @param work The work list.
+     * @return False if the elements can not be matched, else true.
+     */
+    private boolean expandList(Element e1, Element e2, WorkList work) {
+        List<Element> list1 = ((ListElement) e1).getElementList();
+        List<Element> list2 = ((ListElement) e2).getElementList();
+
+        if (list1.size() != list2.size()) {
             return false;
         }
 
-        for (int i = 0; i < ele1.getElementList().size(); i++) {
-            if (!compare(ele1.getElementList().get(i), ele2.getElementList().get(i))) {
-                return false;
+        if (e1 instanceof ArrayElement && e2 instanceof ArrayElement) {
+            PrimitiveArray array1 = ((ArrayElement) e1).getPrimitiveArray();
+            PrimitiveArray array2 = ((ArrayElement) e2).getPrimitiveArray();
+            if (array1 != null && array2 != null && array1.getComponentType() == array2.getComponentType()
+                    && comparesPrimitivesByDefault()) {
+                return array1.arrayEquals(array2);
             }
         }
 
+        if (isParallel(list1.size())) {
+            return compareParallel(list1.toArray(new Element[0]), list2.toArray(new Element[0]));
+        }
+
+        // Pushed in reverse, so the items are compared in their order.
+        for (int i = list1.size() - 1; i >= 0; i--) {
+            work.push(list1.get(i), list2.get(i));
+        }
+
         return true;
     }
 
+    /**
+     * Helper method to check if PrimitiveElement pairs are compared by the
+     * built-in rule, so arrays of primitives may be compared in bulk.
+     *
+     * @return True if the built-in rule is tried first, else false.
+     */
+    private boolean comparesPrimitivesByDefault() {
+        ComparatorRule[] candidates = getRules(PrimitiveElement.class, PrimitiveElement.class);
+        return primitiveRule != null && candidates.length > 0 && candidates[0] == primitiveRule;
+    }
+
     /**
      * Method for comparing a ArrayElement pair.
      *
@@ -171,16 +958,362 @@ public class Comparator {
     }
 
     /**
-     * Intern helper class for defining a datatype for data comparisons.
+     * Helper method to check if a number of entries is compared in parallel.
+     *
+     * @param size The number of entries.
+     * @return True if the entries are compared in parallel, else false.
+     */
+    private boolean isParallel(int size) {
+        return pool != null && size >= parallelThreshold;
+    }
+
+    /**
+     * Helper method to check if the parallel comparison the current thread
+     * works on was cancelled. Its result does not matter anymore then.
+     *
+     * @return True if the comparison was cancelled, else false.
+     */
+    private boolean isCancelled() {
+        if (pool == null) {
+            return false;
+        }
+
+        Cancellation cancellation = CANCELLATION.get();
+        return cancellation != null && cancellation.isCancelled();
+    }
+
+    /**
+     * Helper method for comparing element pairs in parallel.
+     *
+     * @param elements1 The first elements.
+     * @param elements2 The second elements, in the order of their partners.
+     * @return True if all pairs could be matched, else false.
+     */
+    private boolean compareParallel(Element[] elements1, Element[] elements2) {
+        ForkJoinPool currentPool = pool;
+        int batch = Math.max(1, elements1.length / (4 * currentPool.getParallelism()));
+        CompareTask task = new CompareTask(elements1, elements2, 0, elements1.length, batch, new Cancellation(CANCELLATION.get()));
+
+        if (ForkJoinTask.getPool() == currentPool) {
+            return task.invoke();
+        }
+        return currentPool.invoke(task);
+    }
+
+    /**
+     * Intern helper interface for putting the children of an element pair on
+     * the work list.
+     */
+    @FunctionalInterface
+    private static interface Expansion {
+
+        boolean expand(Element e1, Element e2, WorkList work);
+    }
+
+    /**
+     * Intern helper class for the pairs still to be compared by a thread. It
+     * also remembers the matched ObjectElement pairs of the outermost
+     * comparison, which are undone when the comparison adding them fails. For
+     * every first element the last matched second element is kept. The
+     * results of member pairs are remembered the same way, but only the
+     * matching ones are undone, since a pair which did not match under the
+     * remembered pairs does not match without them either.
+     */
+    private static class WorkList {
+
+        private Element[] firsts = new Element[64];
+        private Element[] seconds = new Element[64];
+        private int size;
+        private int depth;
+
+        private final Map<ObjectElement, ObjectElement> matched = new IdentityHashMap<>();
+        private ObjectElement[] undo = new ObjectElement[64];
+        private int undoSize;
+
+        private int memoCapacity;
+        private final Map<MemoKey, MemoResult> results = new LinkedHashMap<MemoKey, MemoResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<MemoKey, MemoResult> eldest) {
+                if (size() > memoCapacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        private MemoKey[] resultUndo = new MemoKey[16];
+        private int resultUndoSize;
+
+        private long compared;
+        private long hits;
+        private long misses;
+        private long evictions;
+        private long saved;
+
+        /**
+         * The pairs handed over by compareLater() while findMismatches()
+         * applies a rule, else null.
+         */
+        private List<Element> deferred;
+
+        public void push(Element ele1, Element ele2) {
+            if (size == firsts.length) {
+                firsts = Arrays.copyOf(firsts, size * 2);
+                seconds = Arrays.copyOf(seconds, size * 2);
+            }
+            firsts[size] = ele1;
+            seconds[size++] = ele2;
+        }
+
+        public void truncate(int base) {
+            while (size > base) {
+                firsts[--size] = null;
+                seconds[size] = null;
+            }
+        }
+
+        public void remember(ObjectElement ele1, ObjectElement ele2) {
+            if (undoSize == undo.length) {
+                undo = Arrays.copyOf(undo, undoSize * 2);
+            }
+            undo[undoSize++] = ele1;
+            matched.put(ele1, ele2);
+        }
+
+        public void store(MemoKey key, MemoResult result) {
+            results.put(key, result);
+            if (result.result) {
+                if (resultUndoSize == resultUndo.length) {
+                    resultUndo = Arrays.copyOf(resultUndo, resultUndoSize * 2);
+                }
+                resultUndo[resultUndoSize++] = key;
+            }
+        }
+
+        public void rollback(int base, int resultBase) {
+            while (undoSize > base) {
+                matched.remove(undo[--undoSize]);
+                undo[undoSize] = null;
+            }
+            while (resultUndoSize > resultBase) {
+                results.remove(resultUndo[--resultUndoSize]);
+                resultUndo[resultUndoSize] = null;
+            }
+        }
+
+        public void clearMemo() {
+            matched.clear();
+            Arrays.fill(undo, 0, undoSize, null);
+            undoSize = 0;
+            results.clear();
+            Arrays.fill(resultUndo, 0, resultUndoSize, null);
+            resultUndoSize = 0;
+        }
+    }
+
+    /**
+     * Intern helper class for the key of a member pair in the memo, which
+     * compares the elements by identity.
+     */
+    private static final class MemoKey {
+
+        private final Element first;
+        private final Element second;
+
+        public MemoKey(Element first, Element second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(first) + System.identityHashCode(second);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof MemoKey)) {
+                return false;
+            }
+            MemoKey other = (MemoKey) obj;
+            return first == other.first && second == other.second;
+        }
+    }
+
+    /**
+     * Intern helper class for the result of a member pair and the number of
+     * element pairs compared for it.
+     */
+    private static final class MemoResult {
+
+        private final boolean result;
+        private final long cost;
+
+        public MemoResult(boolean result, long cost) {
+            this.result = result;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Intern helper class for a pair compared by findMismatches(). The path of
+     * a pair is only built for a mismatch.
+     */
+    private static class Step {
+
+        private final Step parent;
+        private final String segment;
+        private final Element first;
+        private final Element second;
+
+        public Step(Step parent, String segment, Element first, Element second) {
+            this.parent = parent;
+            this.segment = segment;
+            this.first = first;
+            this.second = second;
+        }
+
+        public Mismatch mismatch(ComparatorRule rule, String reason) {
+            Deque<String> segments = new ArrayDeque<>();
+            for (Step step = this; step != null; step = step.parent) {
+                segments.push(step.segment);
+            }
+
+            StringBuilder path = new StringBuilder();
+            for (String part : segments) {
+                path.append(part);
+            }
+
+            if (path.length() > 0 && path.charAt(0) == '.') {
+                path.deleteCharAt(0);
+            }
+
+            return new Mismatch(path.toString(), first, second, rule == null ? null : rule.toString(), reason);
+        }
+    }
+
+    /**
+     * Intern helper class for cancelling a parallel comparison together with
+     * the parallel comparisons nested in it.
+     */
+    private static class Cancellation {
+
+        private final Cancellation parent;
+        private volatile boolean cancelled;
+
+        public Cancellation(Cancellation parent) {
+            this.parent = parent;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled || (parent != null && parent.isCancelled());
+        }
+    }
+
+    /**
+     * Intern helper class for comparing a range of element pairs as a fork
+     * join task.
+     */
+    private class CompareTask extends RecursiveTask<Boolean> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Element[] elements1;
+        private final Element[] elements2;
+        private final int from;
+        private final int to;
+        private final int batch;
+        private final Cancellation cancellation;
+
+        public CompareTask(Element[] elements1, Element[] elements2, int from, int to, int batch, Cancellation cancellation) {
+            this.elements1 = elements1;
+            this.elements2 = elements2;
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+            this.cancellation = cancellation;
+        }
+
+        @Override
+        protected Boolean compute() {
+            if (cancellation.isCancelled()) {
+                return false;
+            }
+
+            if (to - from > batch) {
+                int middle = (from + to) >>> 1;
+                CompareTask left = new CompareTask(elements1, elements2, from, middle, batch, cancellation);
+                left.fork();
+
+                boolean result = new CompareTask(elements1, elements2, middle, to, batch, cancellation).compute();
+                if (!result) {
+                    cancellation.cancel();
+                }
+
+                return left.join() && result;
+            }
+
+            // Other comparisons may run on this thread while it waits, so the
+            // task gets its own work list.
+            Cancellation previous = CANCELLATION.get();
+            WorkList previousWork = workList.get();
+            CANCELLATION.set(cancellation);
+            workList.set(new WorkList());
+            try {
+                for (int i = from; i < to; i++) {
+                    if (cancellation.isCancelled()) {
+                        return false;
+                    }
+
+                    if (!compare(elements1[i], elements2[i])) {
+                        cancellation.cancel();
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                CANCELLATION.set(previous);
+                workList.set(previousWork);
+            }
+        }
+    }
+
+    /**
+     * Intern helper class for defining a datatype for data comparisons. A rule
+     * has either a pair of element classes or a check.
      */
     private class ComparatorRule {
 
+        private final int priority;
+        private final Class<?> type1;
+        private final Class<?> type2;
         private final BiPredicate<Element, Element> check;
         private final BiPredicate<Element, Element> rule;
+        private final Expansion expansion;
 
-        public ComparatorRule(BiPredicate<Element, Element> check, BiPredicate<Element, Element> rule) {
+        public ComparatorRule(int priority, Class<?> type1, Class<?> type2, BiPredicate<Element, Element> check, BiPredicate<Element, Element> rule, Expansion expansion) {
+            this.priority = priority;
+            this.type1 = type1;
+            this.type2 = type2;
             this.check = check;
             this.rule = rule;
+            this.expansion = expansion;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        public Class<?> getType1() {
+            return type1;
+        }
+
+        public Class<?> getType2() {
+            return type2;
         }
 
         public BiPredicate<Element, Element> getCheck() {
@@ -190,5 +1323,16 @@ public class Comparator {
         public BiPredicate<Element, Element> getRule() {
             return rule;
         }
+
+        public Expansion getExpansion() {
+            return expansion;
+        }
+
+        @Override
+        public String toString() {
+            String name = check != null ? "rule with check"
+                    : type1.getSimpleName() + "/" + type2.getSimpleName() + " rule";
+            return priority == 0 ? name : name + " with priority " + priority;
+        }
     }
 }
@@ -3,6 +3,8 @@ package org.softlang.xmltracer.comparator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import org.softlang.xmltracer.data.ArrayElement;
 import org.softlang.xmltracer.data.CollectionElement;
 import org.softlang.xmltracer.data.Element;
@@ -19,23 +21,75 @@ import org.softlang.xmltracer.data.SetElement;
 public class JavaXmlComparator extends Comparator {
 
     public JavaXmlComparator() {
-        registerComparatorRule((e1, e2) -> e1.getClass() == SetElement.class && e2.getClass() == CollectionElement.class,
-                (e1, e2) -> compareSet((SetElement) e1, new SetElement(new HashSet<>(((CollectionElement) e2).getCollection()))));
+        registerComparatorRule(SetElement.class, CollectionElement.class,
+                (e1, e2) -> compareLater(e1, toSetElement(e2)));
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == ListElement.class && e2.getClass() == CollectionElement.class,
-                (e1, e2) -> compareList((ListElement) e1, new ListElement(new ArrayList<>(((CollectionElement) e2).getCollection()))));
+        registerComparatorRule(ListElement.class, CollectionElement.class,
+                (e1, e2) -> compareLater(e1, new ListElement(new ArrayList<>(e2.getCollection()))));
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == ArrayElement.class && e2.getClass() == CollectionElement.class,
-                (e1, e2) -> compareArray((ArrayElement) e1, new ArrayElement(new ArrayList<>(((CollectionElement) e2).getCollection()))));
+        registerComparatorRule(ArrayElement.class, CollectionElement.class,
+                (e1, e2) -> compareLater(e1, new ArrayElement(new ArrayList<>(e2.getCollection()))));
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == SetElement.class && (e2.getClass() == ObjectElement.class || e2.getClass() == PrimitiveElement.class),
-                (e1, e2) -> compareSet((SetElement) e1, new SetElement(Collections.singleton(e2))));
+        registerComparatorRule(SetElement.class, ObjectElement.class,
+                (e1, e2) -> compareLater(e1, new SetElement(Collections.singleton(e2))));
+        registerComparatorRule(SetElement.class, PrimitiveElement.class,
+                (e1, e2) -> compareLater(e1, new SetElement(Collections.singleton(e2))));
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == ListElement.class && (e2.getClass() == ObjectElement.class || e2.getClass() == PrimitiveElement.class),
-                (e1, e2) -> compareList((ListElement) e1, new ListElement(Collections.singletonList(e2))));
+        registerComparatorRule(ListElement.class, ObjectElement.class,
+                (e1, e2) -> compareLater(e1, new ListElement(Collections.singletonList(e2))));
+        registerComparatorRule(ListElement.class, PrimitiveElement.class,
+                (e1, e2) -> compareLater(e1, new ListElement(Collections.singletonList(e2))));
 
-        registerComparatorRule((e1, e2) -> e1.getClass() == ArrayElement.class && (e2.getClass() == ObjectElement.class || e2.getClass() == PrimitiveElement.class),
-                (e1, e2) -> compareArray((ArrayElement) e1, new ArrayElement(new Element[]{e2})));
+        registerComparatorRule(ArrayElement.class, ObjectElement.class,
+                (e1, e2) -> compareLater(e1, new ArrayElement(new Element[]{e2})));
+        registerComparatorRule(ArrayElement.class, PrimitiveElement.class,
+                (e1, e2) -> compareLater(e1, new ArrayElement(new Element[]{e2})));
+
+        setFingerprint(this::fingerprint);
     }
 
+    /**
+     * Helper method for a fingerprint which is equal for every Java and XML
+     * element pair the rules can match. Objects are only matched with the same
+     * names, primitives with the same value and collections with the same
+     * size, while a single member collection may be matched with its member.
+     *
+     * @param ele The element.
+     * @return The fingerprint of the element.
+     */
+    private int fingerprint(Element ele) {
+        while (ele instanceof CollectionElement && ((CollectionElement) ele).getCollection().size() == 1) {
+            ele = ((CollectionElement) ele).getCollection().iterator().next();
+        }
+
+        if (ele instanceof ObjectElement) {
+            return 31 * ((ObjectElement) ele).getElementMap().keySet().hashCode() + 1;
+        }
+
+        if (ele instanceof CollectionElement) {
+            return 31 * ((CollectionElement) ele).getCollection().size() + 2;
+        }
+
+        return ele.hashCode();
+    }
+
+    /**
+     * Helper method for the members of an XML collection compared with a
+     * Java Set. Repeated equal primitives are merged, like the values of a
+     * Java Set, while objects are all kept, as they can stand for different
+     * Java objects with equal fields.
+     *
+     * @param collection The XML collection.
+     * @return The SetElement of the members.
+     */
+    private static SetElement toSetElement(CollectionElement collection) {
+        List<Element> members = new ArrayList<>();
+        Set<Element> primitives = new HashSet<>();
+        for (Element member : collection.getCollection()) {
+            if (!(member instanceof PrimitiveElement) || primitives.add(member)) {
+                members.add(member);
+            }
+        }
+        return new SetElement(members);
+    }
 }
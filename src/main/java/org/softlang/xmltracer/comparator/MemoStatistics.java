@@ -0,0 +1,83 @@
+package org.softlang.xmltracer.comparator;
+
+/**
+ * The counters of the pair memo of a Comparator: how often a member pair of a
+ * collection was found in the memo, how often it had to be compared, how many
+ * results were evicted and how many element pairs the hits saved.
+ */
+public class MemoStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long comparedPairs;
+    private final long savedPairs;
+
+    public MemoStatistics(long hits, long misses, long evictions, long comparedPairs, long savedPairs) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.comparedPairs = comparedPairs;
+        this.savedPairs = savedPairs;
+    }
+
+    /**
+     * Method for returning the number of member pairs whose result was found
+     * in the memo.
+     *
+     * @return The number of hits.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Method for returning the number of member pairs which were compared and
+     * put into the memo.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Method for returning the number of element pairs taken from the work
+     * lists, by all comparisons of the Comparator.
+     *
+     * @return The number of compared pairs.
+     */
+    public long getComparedPairs() {
+        return comparedPairs;
+    }
+
+    /**
+     * Method for returning the number of element pairs the hits did not have
+     * to compare again.
+     *
+     * @return The number of saved pairs.
+     */
+    public long getSavedPairs() {
+        return savedPairs;
+    }
+
+    /**
+     * Method for returning the share of the member lookups found in the memo.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (%.1f%%), %d evictions, %d pairs compared, %d pairs saved",
+                hits, misses, 100 * getHitRate(), evictions, comparedPairs, savedPairs);
+    }
+}
@@ -0,0 +1,107 @@
+package org.softlang.xmltracer.comparator;
+
+import org.softlang.xmltracer.data.CollectionElement;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+
+/**
+ * A difference found by the Comparator: the path to the differing elements,
+ * both elements and the rule which did not match them.
+ */
+public class Mismatch {
+
+    private static final int MAX_VALUE_LENGTH = 80;
+
+    private final String path;
+    private final Element first;
+    private final Element second;
+    private final String rule;
+    private final String reason;
+
+    public Mismatch(String path, Element first, Element second, String rule, String reason) {
+        this.path = path;
+        this.first = first;
+        this.second = second;
+        this.rule = rule;
+        this.reason = reason;
+    }
+
+    /**
+     * Method for returning the path to the elements, for example
+     * departments[1].subDepartment.employees[0].salary. Names are keys of
+     * ObjectElements, indices are positions in a collection. The path of the
+     * compared elements themselves is empty.
+     *
+     * @return The path.
+     */
+    public String getPath() {
+        return path;
+    }
+
+    /**
+     * Method for returning the element of the first tree.
+     *
+     * @return The element, or null if it is missing.
+     */
+    public Element getFirst() {
+        return first;
+    }
+
+    /**
+     * Method for returning the element of the second tree.
+     *
+     * @return The element, or null if it is missing.
+     */
+    public Element getSecond() {
+        return second;
+    }
+
+    /**
+     * Method for returning a description of the rule which did not match the
+     * elements.
+     *
+     * @return The rule, or null if no rule was applied.
+     */
+    public String getRule() {
+        return rule;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    /**
+     * Method for describing the mismatch in a single line. Objects and
+     * collections are given by their type and size only, and long values are
+     * cut, so the line stays short even for whole subtrees.
+     *
+     * @return The description.
+     */
+    @Override
+    public String toString() {
+        return (path.isEmpty() ? "<root>" : path) + ": " + reason
+                + (rule == null ? "" : " (" + rule + ")")
+                + ", first: " + abbreviate(first) + ", second: " + abbreviate(second);
+    }
+
+    /**
+     * Helper method for describing an element without its descendants.
+     *
+     * @param element The element.
+     * @return The description.
+     */
+    private static String abbreviate(Element element) {
+        if (element instanceof ObjectElement) {
+            int size = ((ObjectElement) element).getElementMap().size();
+            return "ObjectElement with " + size + (size == 1 ? " field" : " fields");
+        }
+        if (element instanceof CollectionElement) {
+            int size = ((CollectionElement) element).getCollection().size();
+            return element.getClass().getSimpleName() + " with " + size + (size == 1 ? " member" : " members");
+        }
+
+        String text = String.valueOf(element);
+        return text.length() <= MAX_VALUE_LENGTH ? text
+                : text.substring(0, MAX_VALUE_LENGTH) + "... (" + text.length() + " chars)";
+    }
+}
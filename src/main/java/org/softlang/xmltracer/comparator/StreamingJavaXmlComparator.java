@@ -0,0 +1,367 @@
+package org.softlang.xmltracer.comparator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.softlang.xmltracer.data.CollectionElement;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ListElement;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveElement;
+import org.softlang.xmltracer.data.SetElement;
+import org.softlang.xmltracer.parser.JavaObjectParser;
+import org.softlang.xmltracer.parser.XmlElements;
+
+/**
+ * A comparator for a Java Object and an XML document in a single pass. The
+ * Object is read through the lazy view of the JavaObjectParser while the
+ * document is read as a stream of events, and the comparison stops at the
+ * first difference. Neither the Element tree of the Object nor the one of the
+ * document is built up front. The result is the same as parsing both and
+ * comparing them with the JavaXmlComparator.
+ *
+ * Only the open elements of the document are held in memory, except for the
+ * members of Java Sets, whose XML elements are built and matched when their
+ * parent ends, and for values of custom parser rules, which are compared
+ * with the JavaXmlComparator.
+ */
+public class StreamingJavaXmlComparator {
+
+    private final JavaObjectParser parser;
+    private final Comparator comparator = new JavaXmlComparator();
+
+    /**
+     * Default Constructor for the class StreamingJavaXmlComparator.
+     */
+    public StreamingJavaXmlComparator() {
+        this(new JavaObjectParser());
+    }
+
+    /**
+     * Constructor for the class StreamingJavaXmlComparator.
+     *
+     * @param parser The JavaObjectParser for the Objects, for example with
+     * additional parser rules.
+     */
+    public StreamingJavaXmlComparator(JavaObjectParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Compare method for a Java Object and an XML file.
+     *
+     * @param object The Java Object.
+     * @param file The XML file.
+     * @return True if the Object and the document could be matched, else
+     * false.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    public boolean compare(Object object, File file) throws XMLStreamException, IOException, IllegalAccessException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+            try {
+                return compare(object, reader);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Compare method for a Java Object and an XML file.
+     *
+     * @param object The Java Object.
+     * @param path The path to the XML file.
+     * @return True if the Object and the document could be matched, else
+     * false.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    public boolean compare(Object object, String path) throws XMLStreamException, IOException, IllegalAccessException {
+        return compare(object, new File(path));
+    }
+
+    /**
+     * Compare method for a Java Object and an XML stream. The reader has to be
+     * positioned before the root element. Errors of the lazy view, like a
+     * cyclic reference, are thrown when they are reached.
+     *
+     * @param object The Java Object.
+     * @param reader The reader of the document.
+     * @return True if the Object and the document could be matched, else
+     * false.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    public boolean compare(Object object, XMLStreamReader reader) throws XMLStreamException, IllegalAccessException {
+        ObjectElement root = parser.getLazyObjectElement(object);
+        while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            // skip prolog
+        }
+
+        // Like in the parsers, the root is always an object.
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new ObjectFrame(root, true));
+
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    Frame child = stack.peek().start(XmlElements.getName(reader));
+                    if (child == null) {
+                        return false;
+                    }
+                    stack.push(child);
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    stack.peek().appendText(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    Frame frame = stack.pop();
+                    if (!frame.end()) {
+                        return false;
+                    }
+                    if (stack.isEmpty()) {
+                        return true;
+                    }
+                    stack.peek().deliver(frame);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Helper method for creating the frame comparing a Java element with a
+     * single XML element, following the rules of the JavaXmlComparator. A
+     * Java collection matches a single XML element if its only member does.
+     *
+     * @param name The name of the XML element.
+     * @param element The Java element.
+     * @return The frame, or null if the elements can not be matched.
+     */
+    private Frame create(String name, Element element) {
+        if (element instanceof ObjectElement) {
+            return new ObjectFrame((ObjectElement) element, false);
+        }
+        if (element instanceof PrimitiveElement) {
+            return new PrimitiveFrame((PrimitiveElement) element);
+        }
+        if (element instanceof ListElement || element instanceof SetElement) {
+            CollectionElement collection = (CollectionElement) element;
+            if (collection.getCollection().size() != 1) {
+                return null;
+            }
+            return create(name, collection.getCollection().iterator().next());
+        }
+        return new BuildFrame(name, element);
+    }
+
+    /**
+     * Intern helper class holding the state of an open XML element.
+     */
+    private abstract static class Frame {
+
+        /**
+         * Returns the frame for a child element or null if the child can not
+         * be matched.
+         */
+        public abstract Frame start(String name);
+
+        public void appendText(XMLStreamReader reader) {
+        }
+
+        /**
+         * Returns false if the element can not be matched.
+         */
+        public abstract boolean end();
+
+        /**
+         * Takes a child frame which has ended successfully.
+         */
+        public void deliver(Frame child) {
+        }
+    }
+
+    /**
+     * Intern helper class comparing an XML element with the fields of a Java
+     * Object. Members of Lists and Arrays are matched with the XML elements of
+     * their name in order, members of Sets when the element ends.
+     */
+    private class ObjectFrame extends Frame {
+
+        private final Map<String, Element> map;
+        private final boolean root;
+        private final Map<String, Integer> counts = new HashMap<>();
+        private Map<String, List<Element>> pending;
+        private boolean children;
+
+        public ObjectFrame(ObjectElement element, boolean root) {
+            this.map = element.getElementMap();
+            this.root = root;
+        }
+
+        @Override
+        public Frame start(String name) {
+            children = true;
+            Element element = map.get(name);
+            if (element == null) {
+                return null;
+            }
+
+            int count = counts.merge(name, 1, Integer::sum);
+            if (element instanceof SetElement) {
+                return new BuildFrame(name, null);
+            }
+            if (element instanceof ListElement) {
+                List<Element> list = ((ListElement) element).getElementList();
+                return count > list.size() ? null : create(name, list.get(count - 1));
+            }
+            return count > 1 ? null : create(name, element);
+        }
+
+        @Override
+        public void deliver(Frame child) {
+            // Only the members of Sets are built without a target.
+            if (child instanceof BuildFrame && ((BuildFrame) child).target == null) {
+                BuildFrame frame = (BuildFrame) child;
+                if (pending == null) {
+                    pending = new HashMap<>();
+                }
+                pending.computeIfAbsent(frame.name, k -> new ArrayList<>()).add(frame.toElement());
+            }
+        }
+
+        @Override
+        public boolean end() {
+            // An element without children is a primitive in XML.
+            if (!root && !children) {
+                return false;
+            }
+
+            for (Map.Entry<String, Element> entry : map.entrySet()) {
+                Integer count = counts.get(entry.getKey());
+                Element element = entry.getValue();
+                if (count == null) {
+                    return false;
+                }
+
+                if (element instanceof SetElement) {
+                    List<Element> members = pending.get(entry.getKey());
+                    Element xmlElement = members.size() == 1 ? members.get(0) : new CollectionElement(members);
+                    if (!comparator.compare(element, xmlElement)) {
+                        return false;
+                    }
+                } else if (element instanceof ListElement) {
+                    if (count != ((ListElement) element).getElementList().size()) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Intern helper class comparing an XML element with a primitive.
+     */
+    private static class PrimitiveFrame extends Frame {
+
+        private final PrimitiveElement value;
+        private final StringBuilder text = new StringBuilder();
+
+        public PrimitiveFrame(PrimitiveElement value) {
+            this.value = value;
+        }
+
+        @Override
+        public Frame start(String name) {
+            return null;
+        }
+
+        @Override
+        public void appendText(XMLStreamReader reader) {
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+
+        @Override
+        public boolean end() {
+            return value.valueEquals(text);
+        }
+    }
+
+    /**
+     * Intern helper class building the Element of an XML element like the
+     * parsers do. With a target, the Element is compared with the target by
+     * the JavaXmlComparator when it ends.
+     */
+    private class BuildFrame extends Frame {
+
+        private final String name;
+        private final Element target;
+        private Map<String, List<Element>> children;
+        private StringBuilder text;
+
+        public BuildFrame(String name, Element target) {
+            this.name = name;
+            this.target = target;
+        }
+
+        @Override
+        public Frame start(String childName) {
+            if (children == null) {
+                children = new HashMap<>();
+                text = null;
+            }
+            return new BuildFrame(childName, null);
+        }
+
+        @Override
+        public void appendText(XMLStreamReader reader) {
+            if (children != null) {
+                return;
+            }
+            if (text == null) {
+                text = new StringBuilder();
+            }
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+
+        @Override
+        public void deliver(Frame child) {
+            BuildFrame frame = (BuildFrame) child;
+            children.computeIfAbsent(frame.name, k -> new ArrayList<>()).add(frame.toElement());
+        }
+
+        @Override
+        public boolean end() {
+            return target == null || comparator.compare(target, toElement());
+        }
+
+        public Element toElement() {
+            if (children == null) {
+                return new PrimitiveElement(text == null ? "" : text.toString());
+            }
+            return XmlElements.toObject(children);
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package org.softlang.xmltracer.comparator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.PrimitiveElement;
+import org.softlang.xmltracer.parser.XmlElements;
+
+/**
+ * Compares two XML documents by reading both as event streams at the same
+ * pace, without building their trees first. The comparison stops at the first
+ * difference and gives the same result as parsing both documents and calling
+ * Comparator.compare on the results.
+ *
+ * Siblings with the same name are compared in lockstep. Since the order of
+ * child elements is not significant, a sibling pair that does not match is
+ * buffered until a matching sibling arrives on the other side. Buffering is
+ * bounded: at most window unmatched siblings are kept per side and level, and
+ * a single buffered sibling pair may hold at most bufferLimit nodes. Documents
+ * whose siblings are reordered beyond these bounds are reported as different.
+ */
+public class StreamingXmlComparator {
+
+    public static final int DEFAULT_WINDOW = 64;
+    public static final int DEFAULT_BUFFER_LIMIT = 10000;
+
+    private final int window;
+    private final int bufferLimit;
+    private final Comparator comparator = new Comparator();
+
+    /**
+     * Default Constructor for the class StreamingXmlComparator.
+     */
+    public StreamingXmlComparator() {
+        this(DEFAULT_WINDOW, DEFAULT_BUFFER_LIMIT);
+    }
+
+    /**
+     * Constructor for the class StreamingXmlComparator.
+     *
+     * @param window The maximum number of unmatched siblings buffered per side
+     * and level.
+     * @param bufferLimit The maximum number of nodes buffered for a single
+     * sibling pair.
+     */
+    public StreamingXmlComparator(int window, int bufferLimit) {
+        if (window < 0 || bufferLimit < 1) {
+            throw new IllegalArgumentException("Invalid buffer bounds.");
+        }
+
+        this.window = window;
+        this.bufferLimit = bufferLimit;
+    }
+
+    /**
+     * Compare method for two XML files.
+     *
+     * @param file1 First file.
+     * @param file2 Second file.
+     * @return True if the documents could be matched, else false.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public boolean compare(File file1, File file2) throws XMLStreamException, IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+
+        try (InputStream in1 = new FileInputStream(file1); InputStream in2 = new FileInputStream(file2)) {
+            XMLStreamReader reader1 = factory.createXMLStreamReader(in1);
+            XMLStreamReader reader2 = factory.createXMLStreamReader(in2);
+            try {
+                return compare(reader1, reader2);
+            } finally {
+                reader1.close();
+                reader2.close();
+            }
+        }
+    }
+
+    /**
+     * Compare method for two XML files.
+     *
+     * @param path1 The path to the first file.
+     * @param path2 The path to the second file.
+     * @return True if the documents could be matched, else false.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public boolean compare(String path1, String path2) throws XMLStreamException, IOException {
+        return compare(new File(path1), new File(path2));
+    }
+
+    /**
+     * Compare method for two XML streams. Both readers have to be positioned
+     * before their root element.
+     *
+     * @param reader1 First reader.
+     * @param reader2 Second reader.
+     * @return True if the documents could be matched, else false.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    public boolean compare(XMLStreamReader reader1, XMLStreamReader reader2) throws XMLStreamException {
+        Cursor c1 = new Cursor(reader1);
+        Cursor c2 = new Cursor(reader2);
+        c1.skipToRoot();
+        c2.skipToRoot();
+
+        // Like in the parsers, the root is always an object and its text is ignored.
+        Outcome outcome = compareChildren(c1, c2, c1.nextChild(), c2.nextChild(), false);
+        return outcome != null && outcome.equal;
+    }
+
+    /**
+     * Helper method for comparing a pair of elements with the same name. Both
+     * cursors are positioned on the start of the elements.
+     *
+     * @return The outcome of the comparison or null if a difference was found
+     * which can not be resolved by reordering.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    private Outcome descend(Cursor c1, Cursor c2) throws XMLStreamException {
+        String n1 = c1.nextChild();
+        String text1 = n1 == null ? c1.getText() : null;
+        String n2 = c2.nextChild();
+        String text2 = n2 == null ? c2.getText() : null;
+
+        if (n1 == null && n2 == null) {
+            return new Outcome(text1.equals(text2), new PrimitiveElement(text1), new PrimitiveElement(text2), 2);
+        }
+
+        if (n1 != null && n2 != null) {
+            return compareChildren(c1, c2, n1, n2, true);
+        }
+
+        // A leaf was paired with an object, keep both for reordering.
+        Built built = n1 == null ? readRest(c2, n2) : readRest(c1, n1);
+        if (built.element == null) {
+            return null;
+        }
+
+        Element first = n1 == null ? new PrimitiveElement(text1) : built.element;
+        Element second = n2 == null ? new PrimitiveElement(text2) : built.element;
+        return new Outcome(false, first, second, built.size + 1);
+    }
+
+    /**
+     * Helper method for comparing the children of two objects. The cursors
+     * are positioned on the start of their first child, or on the end of the
+     * object if it has no children.
+     *
+     * @param n1 The name of the first child on the first side.
+     * @param n2 The name of the first child on the second side.
+     * @param capture True if the objects have to be kept for reordering on
+     * the parent level.
+     * @return The outcome of the comparison or null if a difference was found
+     * which can not be resolved by reordering.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    private Outcome compareChildren(Cursor c1, Cursor c2, String n1, String n2, boolean capture) throws XMLStreamException {
+        Map<String, List<Element>> captured1 = capture ? new HashMap<>() : null;
+        Map<String, List<Element>> captured2 = capture ? new HashMap<>() : null;
+        Map<String, List<Element>> pending1 = new HashMap<>();
+        Map<String, List<Element>> pending2 = new HashMap<>();
+        int pendingCount1 = 0;
+        int pendingCount2 = 0;
+        int size = 2;
+        boolean failed = false;
+
+        while (n1 != null || n2 != null) {
+            Element e1 = null;
+            Element e2 = null;
+            boolean advance1 = n1 != null;
+            boolean advance2 = n2 != null;
+
+            if (!failed && n1 != null && n1.equals(n2)) {
+                Outcome outcome = descend(c1, c2);
+                if (outcome == null) {
+                    return null;
+                }
+
+                size += outcome.size;
+                e1 = outcome.first;
+                e2 = outcome.second;
+
+                if (!outcome.equal) {
+                    boolean matched1 = removeMatch(pending2, n1, e1, true);
+                    boolean matched2 = removeMatch(pending1, n2, e2, false);
+                    pendingCount2 -= matched1 ? 1 : 0;
+                    pendingCount1 -= matched2 ? 1 : 0;
+                    if (!matched1) {
+                        pending1.computeIfAbsent(n1, k -> new ArrayList<>()).add(e1);
+                        pendingCount1++;
+                    }
+                    if (!matched2) {
+                        pending2.computeIfAbsent(n2, k -> new ArrayList<>()).add(e2);
+                        pendingCount2++;
+                    }
+                }
+            } else {
+                if (n1 != null) {
+                    Built built = read(c1);
+                    if (built.element == null) {
+                        return null;
+                    }
+
+                    size += built.size;
+                    e1 = built.element;
+
+                    if (!failed) {
+                        if (removeMatch(pending2, n1, e1, true)) {
+                            pendingCount2--;
+                        } else {
+                            pending1.computeIfAbsent(n1, k -> new ArrayList<>()).add(e1);
+                            pendingCount1++;
+                        }
+                    }
+                }
+
+                if (n2 != null) {
+                    Built built = read(c2);
+                    if (built.element == null) {
+                        return null;
+                    }
+
+                    size += built.size;
+                    e2 = built.element;
+
+                    if (!failed) {
+                        if (removeMatch(pending1, n2, e2, false)) {
+                            pendingCount1--;
+                        } else {
+                            pending2.computeIfAbsent(n2, k -> new ArrayList<>()).add(e2);
+                            pendingCount2++;
+                        }
+                    }
+                }
+            }
+
+            if (size > bufferLimit) {
+                captured1 = null;
+                captured2 = null;
+            }
+
+            if (captured1 != null) {
+                if (e1 != null) {
+                    captured1.computeIfAbsent(n1, k -> new ArrayList<>()).add(e1);
+                }
+                if (e2 != null) {
+                    captured2.computeIfAbsent(n2, k -> new ArrayList<>()).add(e2);
+                }
+            }
+
+            if (pendingCount1 > window || pendingCount2 > window) {
+                failed = true;
+            }
+
+            if (failed && captured1 == null) {
+                return null;
+            }
+
+            n1 = advance1 ? c1.nextChild() : null;
+            n2 = advance2 ? c2.nextChild() : null;
+        }
+
+        if (pendingCount1 > 0 || pendingCount2 > 0) {
+            failed = true;
+        }
+
+        if (!capture) {
+            return new Outcome(!failed, null, null, size);
+        }
+
+        if (captured1 == null) {
+            return failed ? null : new Outcome(true, null, null, size);
+        }
+
+        return new Outcome(!failed, XmlElements.toObject(captured1), XmlElements.toObject(captured2), size);
+    }
+
+    /**
+     * Helper method for finding and removing a buffered sibling which matches
+     * the given element.
+     *
+     * @param pending The buffered siblings of the other side.
+     * @param name The name of the element.
+     * @param element The element to be matched.
+     * @param first True if the element is from the first document.
+     * @return True if a matching sibling was found and removed, else false.
+     */
+    private boolean removeMatch(Map<String, List<Element>> pending, String name, Element element, boolean first) {
+        List<Element> candidates = pending.get(name);
+        if (candidates == null) {
+            return false;
+        }
+
+        for (Iterator<Element> iterator = candidates.iterator(); iterator.hasNext();) {
+            Element candidate = iterator.next();
+            if (first ? comparator.compare(element, candidate) : comparator.compare(candidate, element)) {
+                iterator.remove();
+                if (candidates.isEmpty()) {
+                    pending.remove(name);
+                }
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Helper method for building the element the cursor is positioned on.
+     *
+     * @param cursor The cursor positioned on the start of the element.
+     * @return The built element, whose element is null if it exceeded the
+     * buffer limit.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    private Built read(Cursor cursor) throws XMLStreamException {
+        String name = cursor.nextChild();
+        if (name == null) {
+            return new Built(new PrimitiveElement(cursor.getText()), 1);
+        }
+
+        Built built = readRest(cursor, name);
+        return new Built(built.element, built.size + 1);
+    }
+
+    /**
+     * Helper method for building the remaining children of an object.
+     *
+     * @param cursor The cursor positioned on the start of the next child.
+     * @param name The name of the next child.
+     * @return The built ObjectElement, whose element is null if it exceeded
+     * the buffer limit.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    private Built readRest(Cursor cursor, String name) throws XMLStreamException {
+        Map<String, List<Element>> children = new HashMap<>();
+        int size = 0;
+
+        while (name != null) {
+            Built child = read(cursor);
+            size += child.size;
+
+            if (child.element == null || size > bufferLimit) {
+                cursor.skipRest();
+                return new Built(null, size);
+            }
+
+            children.computeIfAbsent(name, k -> new ArrayList<>()).add(child.element);
+            name = cursor.nextChild();
+        }
+
+        return new Built(XmlElements.toObject(children), size);
+    }
+
+    /**
+     * Intern helper class for the outcome of comparing an element pair.
+     */
+    private static class Outcome {
+
+        private final boolean equal;
+        private final Element first;
+        private final Element second;
+        private final int size;
+
+        public Outcome(boolean equal, Element first, Element second, int size) {
+            this.equal = equal;
+            this.first = first;
+            this.second = second;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Intern helper class for a buffered element and its number of nodes.
+     */
+    private static class Built {
+
+        private final Element element;
+        private final int size;
+
+        public Built(Element element, int size) {
+            this.element = element;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Intern helper class for reading the children of the current element.
+     */
+    private static class Cursor {
+
+        private final XMLStreamReader reader;
+        private final StringBuilder text = new StringBuilder();
+
+        public Cursor(XMLStreamReader reader) {
+            this.reader = reader;
+        }
+
+        public void skipToRoot() throws XMLStreamException {
+            while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                // skip prolog
+            }
+        }
+
+        /**
+         * Reads up to the start of the next child of the current element and
+         * collects the text in between.
+         *
+         * @return The name of the next child or null if the end of the
+         * current element was reached.
+         */
+        public String nextChild() throws XMLStreamException {
+            text.setLength(0);
+
+            while (true) {
+                switch (reader.next()) {
+                    case XMLStreamConstants.START_ELEMENT:
+                        return XmlElements.getName(reader);
+                    case XMLStreamConstants.END_ELEMENT:
+                        return null;
+                    case XMLStreamConstants.CHARACTERS:
+                    case XMLStreamConstants.CDATA:
+                    case XMLStreamConstants.SPACE:
+                        text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+
+        public String getText() {
+            return text.toString();
+        }
+
+        /**
+         * Skips the rest of the element the cursor is currently in.
+         */
+        public void skipRest() throws XMLStreamException {
+            int depth = 1;
+            while (depth > 0) {
+                int event = reader.next();
+                if (event == XMLStreamConstants.START_ELEMENT) {
+                    depth++;
+                } else if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                }
+            }
+        }
+    }
+}
@@ -13,4 +13,33 @@ public class ArrayElement extends ListElement {
         super(list);
     }
 
+    /**
+     * Method for returning the members if they are backed by a Java array of
+     * primitives.
+     *
+     * @return The PrimitiveArray of the members, or null.
+     */
+    public PrimitiveArray getPrimitiveArray() {
+        return collection instanceof PrimitiveArray ? (PrimitiveArray) collection : null;
+    }
+
+    /**
+     * Arrays of primitives with the same component type are compared in bulk,
+     * without the hashes of their members.
+     *
+     * @param obj The other object.
+     * @return True if the elements are equal, else false.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (obj != null && getClass() == obj.getClass()) {
+            PrimitiveArray array = getPrimitiveArray();
+            PrimitiveArray other = ((ArrayElement) obj).getPrimitiveArray();
+            if (array != null && other != null && array.getComponentType() == other.getComponentType()) {
+                return array.arrayEquals(other);
+            }
+        }
+        return super.equals(obj);
+    }
+
 }
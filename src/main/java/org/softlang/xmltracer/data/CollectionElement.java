@@ -2,10 +2,14 @@ package org.softlang.xmltracer.data;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
 
 public class CollectionElement implements Element {
 
     protected final Collection<Element> collection;
+    private int hash;
 
     public CollectionElement(Collection<Element> collection) {
         this.collection = collection;
@@ -15,6 +19,108 @@ public class CollectionElement implements Element {
         return Collections.unmodifiableCollection(collection);
     }
 
+    /**
+     * Structural hash over the hashes of the members. The hash is computed
+     * once, so the collection must not change after the element was created.
+     * The hashes of deep trees are computed without recursion.
+     *
+     * @return The structural hash.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            StructuralHash.compute(this);
+            h = hash;
+        }
+        return h;
+    }
+
+    boolean isHashed() {
+        return hash != 0;
+    }
+
+    void cacheHash() {
+        hash = computeHash();
+    }
+
+    /**
+     * Helper method for computing the structural hash, which is independent
+     * of the order of the members.
+     *
+     * @return The structural hash.
+     */
+    protected int computeHash() {
+        int h = 61;
+        for (Element element : collection) {
+            h += mix(Objects.hashCode(element));
+        }
+        return h;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final CollectionElement other = (CollectionElement) obj;
+
+        return hashCode() == other.hashCode()
+                && collection.size() == other.collection.size()
+                && equalMembers(other);
+    }
+
+    /**
+     * Helper method for comparing the members of two collections of the same
+     * type and size. The members are compared as a multiset, like the
+     * Comparator does for collections.
+     *
+     * @param other The other collection.
+     * @return True if both collections contain equal members, else false.
+     */
+    protected boolean equalMembers(CollectionElement other) {
+        Map<Element, Integer> counts = new HashMap<>();
+        for (Element element : collection) {
+            counts.merge(element, 1, Integer::sum);
+        }
+
+        for (Element element : other.collection) {
+            Integer count = counts.get(element);
+            if (count == null) {
+                return false;
+            }
+
+            if (count == 1) {
+                counts.remove(element);
+            } else {
+                counts.put(element, count - 1);
+            }
+        }
+
+        return counts.isEmpty();
+    }
+
+    /**
+     * Helper method for spreading the bits of a member hash, so that sums of
+     * member hashes collide less often.
+     *
+     * @param h The member hash.
+     * @return The spread hash.
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
     @Override
     public String toString() {
         return collection.toString();
@@ -0,0 +1,761 @@
+package org.softlang.xmltracer.data;
+
+import java.util.AbstractCollection;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact alternative to a tree of Element objects. The nodes are stored in
+ * parallel arrays holding the kind, the name id, the first child, the next
+ * sibling and the value of every node. Names are stored once in a name table,
+ * the values of primitives in a single character array. The value of an
+ * object or collection node is its number of children. The root is always
+ * node 0 and a missing child or sibling is -1.
+ *
+ * A tree is immutable and is read through its node accessors or through the
+ * Element view returned by getElement(), which creates the Elements of the
+ * nodes on access.
+ */
+public final class CompactTree {
+
+    public static final int OBJECT = 0;
+    public static final int COLLECTION = 1;
+    public static final int SET = 2;
+    public static final int LIST = 3;
+    public static final int ARRAY = 4;
+    public static final int PRIMITIVE = 5;
+
+    private static final List<Class<? extends Element>> TYPES = Arrays.asList(
+            ObjectElement.class, CollectionElement.class, SetElement.class,
+            ListElement.class, ArrayElement.class, PrimitiveElement.class);
+
+    private final int size;
+    private final byte[] kinds;
+    private final int[] names;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] values;
+
+    private final String[] nameTable;
+    private final Map<String, Integer> nameIds;
+    private final char[] text;
+    private final int[] valueStarts;
+
+    private CompactTree(Builder builder) {
+        this.size = builder.size;
+        this.kinds = Arrays.copyOf(builder.kinds, size);
+        this.names = Arrays.copyOf(builder.names, size);
+        this.firstChildren = Arrays.copyOf(builder.firstChildren, size);
+        this.nextSiblings = Arrays.copyOf(builder.nextSiblings, size);
+        this.values = Arrays.copyOf(builder.values, size);
+        this.nameTable = builder.nameTable.toArray(new String[builder.nameTable.size()]);
+        this.nameIds = builder.nameIds;
+        this.text = Arrays.copyOf(builder.text, builder.textLength);
+        this.valueStarts = Arrays.copyOf(builder.valueStarts, builder.valueCount + 1);
+    }
+
+    /**
+     * Constructor for a tree from complete arrays, which are taken over
+     * without copies. Several primitive nodes may share a value.
+     */
+    CompactTree(int size, byte[] kinds, int[] names, int[] firstChildren, int[] nextSiblings, int[] values,
+            String[] nameTable, char[] text, int[] valueStarts) {
+        this.size = size;
+        this.kinds = kinds;
+        this.names = names;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.values = values;
+        this.nameTable = nameTable;
+        this.nameIds = new HashMap<>();
+        for (int i = 0; i < nameTable.length; i++) {
+            nameIds.put(nameTable[i], i);
+        }
+        this.text = text;
+        this.valueStarts = valueStarts;
+    }
+
+    /**
+     * Method for converting a tree of Elements to a CompactTree. The root has
+     * to be an ObjectElement and only the Element types of this package are
+     * supported.
+     *
+     * @param root The root of the tree.
+     * @return The CompactTree.
+     */
+    public static CompactTree of(ObjectElement root) {
+        Builder builder = new Builder();
+        Deque<Iterator<?>> stack = new ArrayDeque<>();
+
+        builder.startObject(null);
+        stack.push(root.getElementMap().entrySet().iterator());
+
+        while (!stack.isEmpty()) {
+            Iterator<?> iterator = stack.peek();
+            if (!iterator.hasNext()) {
+                stack.pop();
+                builder.end();
+                continue;
+            }
+
+            Object next = iterator.next();
+            String name = null;
+            Element element;
+            if (next instanceof Map.Entry) {
+                name = (String) ((Map.Entry<?, ?>) next).getKey();
+                element = (Element) ((Map.Entry<?, ?>) next).getValue();
+            } else {
+                element = (Element) next;
+            }
+
+            int kind = TYPES.indexOf(element.getClass());
+            if (kind < 0) {
+                throw new IllegalArgumentException("Unsupported element type " + element.getClass().getName() + ".");
+            }
+
+            if (kind == PRIMITIVE) {
+                builder.value(name, ((PrimitiveElement) element).getValue());
+            } else if (kind == OBJECT) {
+                builder.startObject(name);
+                stack.push(((ObjectElement) element).getElementMap().entrySet().iterator());
+            } else {
+                builder.startCollection(kind, name);
+                stack.push(((CollectionElement) element).getCollection().iterator());
+            }
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Method for returning the number of nodes.
+     *
+     * @return The number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getKind(int node) {
+        return kinds[node];
+    }
+
+    /**
+     * Method for returning the Element type a node is viewed as.
+     *
+     * @param node The node.
+     * @return The class of the Element of the node.
+     */
+    public Class<? extends Element> getType(int node) {
+        return TYPES.get(kinds[node]);
+    }
+
+    /**
+     * Method for returning the name of a node, which is its key in the parent
+     * object.
+     *
+     * @param node The node.
+     * @return The name or null for the root and members of collections.
+     */
+    public String getName(int node) {
+        return names[node] < 0 ? null : nameTable[names[node]];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChildren[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSiblings[node];
+    }
+
+    public int getChildCount(int node) {
+        return kinds[node] == PRIMITIVE ? 0 : values[node];
+    }
+
+    /**
+     * Method for finding the child of an object node by its name.
+     *
+     * @param node The object node.
+     * @param name The name of the child.
+     * @return The child or -1 if there is no child with the name.
+     */
+    public int findChild(int node, String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            return -1;
+        }
+
+        for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+            if (names[child] == id) {
+                return child;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Method for returning the value of a primitive node.
+     *
+     * @param node The primitive node.
+     * @return The value.
+     */
+    public String getValue(int node) {
+        int value = values[node];
+        return new String(text, valueStarts[value], valueStarts[value + 1] - valueStarts[value]);
+    }
+
+    /**
+     * Method for comparing the values of two primitive nodes without creating
+     * Strings.
+     *
+     * @param node The primitive node of this tree.
+     * @param other The other tree.
+     * @param otherNode The primitive node of the other tree.
+     * @return True if both values are equal, else false.
+     */
+    public boolean valueEquals(int node, CompactTree other, int otherNode) {
+        int start = valueStarts[values[node]];
+        int length = valueStarts[values[node] + 1] - start;
+        int otherStart = other.valueStarts[other.values[otherNode]];
+        int otherLength = other.valueStarts[other.values[otherNode] + 1] - otherStart;
+
+        if (length != otherLength) {
+            return false;
+        }
+
+        for (int i = 0; i < length; i++) {
+            if (text[start + i] != other.text[otherStart + i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Method for converting the whole tree to Elements, which hold their
+     * children like the ones of the parsers. Unlike the view of getElement(),
+     * the result creates nothing on access and may be shared by threads.
+     *
+     * @return The ObjectElement of the root.
+     */
+    public ObjectElement toElement() {
+        Element[] elements = new Element[size];
+        boolean[] expanded = new boolean[size];
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = 0;
+
+        // A node is built when it is visited the second time, after its
+        // children.
+        while (depth > 0) {
+            int node = stack[depth - 1];
+            if (!expanded[node] && kinds[node] != PRIMITIVE) {
+                expanded[node] = true;
+                for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, depth * 2);
+                    }
+                    stack[depth++] = child;
+                }
+                continue;
+            }
+            depth--;
+
+            if (kinds[node] == PRIMITIVE) {
+                elements[node] = new PrimitiveElement(getValue(node));
+            } else if (kinds[node] == OBJECT) {
+                Map<String, Element> map = new HashMap<>();
+                for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                    map.put(getName(child), elements[child]);
+                    elements[child] = null;
+                }
+                elements[node] = new ObjectElement(map);
+            } else {
+                List<Element> members = new ArrayList<>(values[node]);
+                for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                    members.add(elements[child]);
+                    elements[child] = null;
+                }
+                switch (kinds[node]) {
+                    case SET:
+                        elements[node] = new SetElement(members);
+                        break;
+                    case LIST:
+                        elements[node] = new ListElement(members);
+                        break;
+                    case ARRAY:
+                        elements[node] = new ArrayElement(members);
+                        break;
+                    default:
+                        elements[node] = new CollectionElement(members);
+                }
+            }
+        }
+
+        return (ObjectElement) elements[0];
+    }
+
+    /**
+     * Method for returning the root as an ObjectElement.
+     *
+     * @return The ObjectElement of the root.
+     */
+    public ObjectElement getElement() {
+        return (ObjectElement) getElement(0);
+    }
+
+    /**
+     * Method for returning a node as an Element. The Elements of the children
+     * are created once when the children are accessed first.
+     *
+     * @param node The node.
+     * @return The Element of the node.
+     */
+    public Element getElement(int node) {
+        switch (kinds[node]) {
+            case OBJECT:
+                return new ObjectElement(new NodeMap(node));
+            case COLLECTION:
+                return new CollectionElement(new NodeCollection(node));
+            case SET:
+                return new SetElement(new NodeSet(node));
+            case LIST:
+                return new ListElement(new NodeList(node));
+            case ARRAY:
+                return new ArrayElement(new NodeList(node));
+            default:
+                return new PrimitiveElement(getValue(node));
+        }
+    }
+
+    /**
+     * Intern helper class for the children of a node, which are viewed as
+     * Elements.
+     */
+    private class Children {
+
+        private final int node;
+        private Element[] elements;
+
+        public Children(int node) {
+            this.node = node;
+        }
+
+        public Element[] elements() {
+            if (elements == null) {
+                Element[] children = new Element[values[node]];
+                int i = 0;
+                for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                    children[i++] = getElement(child);
+                }
+                elements = children;
+            }
+            return elements;
+        }
+
+        public int indexOf(String name) {
+            int child = findChild(node, name);
+            if (child < 0) {
+                return -1;
+            }
+
+            int i = 0;
+            for (int sibling = firstChildren[node]; sibling != child; sibling = nextSiblings[sibling]) {
+                i++;
+            }
+            return i;
+        }
+    }
+
+    /**
+     * Intern helper class for the map of an object node.
+     */
+    private class NodeMap extends AbstractMap<String, Element> {
+
+        private final Children children;
+        private Set<Map.Entry<String, Element>> entries;
+
+        public NodeMap(int node) {
+            this.children = new Children(node);
+        }
+
+        @Override
+        public int size() {
+            return values[children.node];
+        }
+
+        @Override
+        public Element get(Object key) {
+            if (!(key instanceof String)) {
+                return null;
+            }
+
+            int index = children.indexOf((String) key);
+            return index < 0 ? null : children.elements()[index];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof String && findChild(children.node, (String) key) >= 0;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Element>> entrySet() {
+            if (entries == null) {
+                entries = new AbstractSet<Map.Entry<String, Element>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Element>> iterator() {
+                        Element[] elements = children.elements();
+                        return new Iterator<Map.Entry<String, Element>>() {
+                            private int child = firstChildren[children.node];
+                            private int index;
+
+                            @Override
+                            public boolean hasNext() {
+                                return child >= 0;
+                            }
+
+                            @Override
+                            public Map.Entry<String, Element> next() {
+                                if (child < 0) {
+                                    throw new NoSuchElementException();
+                                }
+                                Map.Entry<String, Element> entry = new SimpleImmutableEntry<>(getName(child), elements[index++]);
+                                child = nextSiblings[child];
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return NodeMap.this.size();
+                    }
+                };
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Intern helper class for the members of a collection node.
+     */
+    private class NodeCollection extends AbstractCollection<Element> {
+
+        protected final Children children;
+
+        public NodeCollection(int node) {
+            this.children = new Children(node);
+        }
+
+        @Override
+        public Iterator<Element> iterator() {
+            return Arrays.asList(children.elements()).iterator();
+        }
+
+        @Override
+        public int size() {
+            return values[children.node];
+        }
+    }
+
+    /**
+     * Intern helper class for the members of a set node.
+     */
+    private class NodeSet extends AbstractSet<Element> {
+
+        private final NodeCollection members;
+
+        public NodeSet(int node) {
+            this.members = new NodeCollection(node);
+        }
+
+        @Override
+        public Iterator<Element> iterator() {
+            return members.iterator();
+        }
+
+        @Override
+        public int size() {
+            return members.size();
+        }
+    }
+
+    /**
+     * Intern helper class for the items of a list or array node.
+     */
+    private class NodeList extends AbstractList<Element> {
+
+        private final Children children;
+
+        public NodeList(int node) {
+            this.children = new Children(node);
+        }
+
+        @Override
+        public Element get(int index) {
+            return children.elements()[index];
+        }
+
+        @Override
+        public int size() {
+            return values[children.node];
+        }
+    }
+
+    /**
+     * Builder for a CompactTree. Nodes are added in document order: objects
+     * and collections are started, filled and ended, primitives are added as
+     * values. Children of an object which share a name are grouped into a
+     * collection node when the object is ended, like repeated XML elements.
+     */
+    public static final class Builder {
+
+        private int size;
+        private byte[] kinds = new byte[64];
+        private int[] names = new int[64];
+        private int[] firstChildren = new int[64];
+        private int[] nextSiblings = new int[64];
+        private int[] values = new int[64];
+
+        private final List<String> nameTable = new ArrayList<>();
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private char[] text = new char[256];
+        private int textLength;
+        private int[] valueStarts = new int[65];
+        private int valueCount;
+
+        private final Deque<int[]> open = new ArrayDeque<>();
+        private boolean built;
+
+        /**
+         * Method for starting an object node. The first node has to be the
+         * root object.
+         *
+         * @param name The name of the node in its parent object, or null.
+         * @return This Builder.
+         */
+        public Builder startObject(String name) {
+            return start(OBJECT, name);
+        }
+
+        /**
+         * Method for starting a collection node.
+         *
+         * @param kind COLLECTION, SET, LIST or ARRAY.
+         * @param name The name of the node in its parent object, or null.
+         * @return This Builder.
+         */
+        public Builder startCollection(int kind, String name) {
+            if (kind < COLLECTION || kind > ARRAY) {
+                throw new IllegalArgumentException("Not a collection kind: " + kind + ".");
+            }
+            return start(kind, name);
+        }
+
+        /**
+         * Method for adding a primitive node.
+         *
+         * @param name The name of the node in its parent object, or null.
+         * @param value The value of the node.
+         * @return This Builder.
+         */
+        public Builder value(String name, CharSequence value) {
+            int node = add(PRIMITIVE, name);
+
+            int length = value.length();
+            ensureText(length);
+            for (int i = 0; i < length; i++) {
+                text[textLength + i] = value.charAt(i);
+            }
+            addValue(node, length);
+            return this;
+        }
+
+        /**
+         * Method for adding a primitive node from a range of characters.
+         *
+         * @param name The name of the node in its parent object, or null.
+         * @param chars The characters of the value.
+         * @param start The start of the value.
+         * @param length The length of the value.
+         * @return This Builder.
+         */
+        public Builder value(String name, char[] chars, int start, int length) {
+            int node = add(PRIMITIVE, name);
+
+            ensureText(length);
+            System.arraycopy(chars, start, text, textLength, length);
+            addValue(node, length);
+            return this;
+        }
+
+        /**
+         * Method for ending the last started node.
+         *
+         * @return This Builder.
+         */
+        public Builder end() {
+            if (open.isEmpty()) {
+                throw new IllegalStateException("No open node.");
+            }
+
+            int node = open.pop()[0];
+            if (kinds[node] == OBJECT && values[node] > 1) {
+                groupChildren(node);
+            }
+            return this;
+        }
+
+        /**
+         * Method for finishing the tree. All nodes have to be ended.
+         *
+         * @return The CompactTree.
+         */
+        public CompactTree build() {
+            if (size == 0 || !open.isEmpty()) {
+                throw new IllegalStateException("The tree is incomplete.");
+            }
+            built = true;
+            return new CompactTree(this);
+        }
+
+        private Builder start(int kind, String name) {
+            open.push(new int[]{add(kind, name), -1});
+            return this;
+        }
+
+        private int add(int kind, String name) {
+            if (built) {
+                throw new IllegalStateException("The tree is already built.");
+            }
+            if (size == 0 ? kind != OBJECT : open.isEmpty()) {
+                throw new IllegalStateException("The tree has to consist of a single root object.");
+            }
+
+            int node = newNode(kind, name == null ? -1 : nameId(name));
+
+            int[] parent = open.peek();
+            if (parent != null) {
+                if (parent[1] < 0) {
+                    firstChildren[parent[0]] = node;
+                } else {
+                    nextSiblings[parent[1]] = node;
+                }
+                parent[1] = node;
+                values[parent[0]]++;
+            }
+
+            return node;
+        }
+
+        private int newNode(int kind, int name) {
+            if (size == kinds.length) {
+                int capacity = size * 2;
+                kinds = Arrays.copyOf(kinds, capacity);
+                names = Arrays.copyOf(names, capacity);
+                firstChildren = Arrays.copyOf(firstChildren, capacity);
+                nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+
+            kinds[size] = (byte) kind;
+            names[size] = name;
+            firstChildren[size] = -1;
+            nextSiblings[size] = -1;
+            values[size] = 0;
+            return size++;
+        }
+
+        private int nameId(String name) {
+            Integer id = nameIds.get(name);
+            if (id == null) {
+                id = nameTable.size();
+                nameTable.add(name);
+                nameIds.put(name, id);
+            }
+            return id;
+        }
+
+        private void ensureText(int length) {
+            if (textLength + length > text.length) {
+                text = Arrays.copyOf(text, Math.max(text.length * 2, textLength + length));
+            }
+        }
+
+        private void addValue(int node, int length) {
+            textLength += length;
+            if (valueCount + 2 > valueStarts.length) {
+                valueStarts = Arrays.copyOf(valueStarts, valueStarts.length * 2);
+            }
+            values[node] = valueCount;
+            valueStarts[++valueCount] = textLength;
+        }
+
+        /**
+         * Helper method for grouping children of an object which share a name
+         * into collection nodes, kept at the place of their first member.
+         *
+         * @param node The object node.
+         */
+        private void groupChildren(int node) {
+            Set<Integer> seen = new HashSet<>();
+            boolean repeated = false;
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                if (!seen.add(names[child])) {
+                    repeated = true;
+                    break;
+                }
+            }
+            if (!repeated) {
+                return;
+            }
+
+            Map<Integer, List<Integer>> groups = new LinkedHashMap<>();
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                groups.computeIfAbsent(names[child], k -> new ArrayList<>()).add(child);
+            }
+
+            int last = -1;
+            values[node] = 0;
+            for (Map.Entry<Integer, List<Integer>> group : groups.entrySet()) {
+                List<Integer> members = group.getValue();
+                int child = members.get(0);
+
+                if (members.size() > 1) {
+                    child = newNode(COLLECTION, group.getKey());
+                    values[child] = members.size();
+                    firstChildren[child] = members.get(0);
+                    for (int i = 0; i < members.size(); i++) {
+                        nextSiblings[members.get(i)] = i + 1 < members.size() ? members.get(i + 1) : -1;
+                    }
+                }
+
+                if (last < 0) {
+                    firstChildren[node] = child;
+                } else {
+                    nextSiblings[last] = child;
+                }
+                nextSiblings[child] = -1;
+                last = child;
+                values[node]++;
+            }
+        }
+    }
+}
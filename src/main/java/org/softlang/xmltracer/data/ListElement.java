@@ -12,4 +12,28 @@ public class ListElement extends CollectionElement {
     public List<Element> getElementList() {
         return Collections.unmodifiableList((List<Element>) collection);
     }
+
+    /**
+     * Helper method for computing the structural hash, which depends on the
+     * order of the members.
+     *
+     * @return The structural hash.
+     */
+    @Override
+    protected int computeHash() {
+        return 67 + collection.hashCode();
+    }
+
+    /**
+     * Helper method for comparing the members of two lists of the same type
+     * and size in their order.
+     *
+     * @param other The other list.
+     * @return True if both lists contain equal members in the same order, else
+     * false.
+     */
+    @Override
+    protected boolean equalMembers(CollectionElement other) {
+        return collection.equals(other.collection);
+    }
 }
@@ -6,6 +6,7 @@ import java.util.Map;
 public class ObjectElement implements Element {
 
     private final Map<String, Element> map;
+    private int hash;
 
     public ObjectElement(Map<String, Element> map) {
         this.map = map;
@@ -15,6 +16,47 @@ public class ObjectElement implements Element {
         return Collections.unmodifiableMap(map);
     }
 
+    /**
+     * Structural hash over the names and the hashes of the children, which is
+     * independent of the order of the entries. The hash is computed once, so
+     * the map must not change after the element was created. The hashes of
+     * deep trees are computed without recursion.
+     *
+     * @return The structural hash.
+     */
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            StructuralHash.compute(this);
+            h = hash;
+        }
+        return h;
+    }
+
+    boolean isHashed() {
+        return hash != 0;
+    }
+
+    void cacheHash() {
+        hash = 59 + map.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+
+        final ObjectElement other = (ObjectElement) obj;
+
+        return hashCode() == other.hashCode() && map.equals(other.map);
+    }
+
     @Override
     public String toString() {
         return map.toString();
@@ -0,0 +1,128 @@
+package org.softlang.xmltracer.data;
+
+import java.lang.reflect.Array;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * A list view of a Java array with a primitive component type, for the
+ * members of an ArrayElement. The view is backed by the original array, the
+ * PrimitiveElement of a member is created when it is accessed. Two views of
+ * arrays with the same component type are compared with Arrays.equals. The
+ * array must not change while the view is used.
+ */
+public final class PrimitiveArray extends AbstractList<Element> implements RandomAccess {
+
+    private final Object array;
+    private final Class<?> type;
+    private final int size;
+
+    /**
+     * Constructor for the class PrimitiveArray.
+     *
+     * @param array The Java array with a primitive component type.
+     */
+    public PrimitiveArray(Object array) {
+        if (array == null || !array.getClass().isArray() || !array.getClass().getComponentType().isPrimitive()) {
+            throw new IllegalArgumentException("The object is not an array of primitives.");
+        }
+
+        this.array = array;
+        this.type = array.getClass().getComponentType();
+        this.size = Array.getLength(array);
+    }
+
+    /**
+     * Method for returning the backing array.
+     *
+     * @return The array.
+     */
+    public Object getArray() {
+        return array;
+    }
+
+    /**
+     * Method for returning the component type of the array.
+     *
+     * @return The primitive class of the members.
+     */
+    public Class<?> getComponentType() {
+        return type;
+    }
+
+    @Override
+    public Element get(int index) {
+        if (type == int.class) {
+            return new PrimitiveElement(((int[]) array)[index]);
+        }
+        if (type == long.class) {
+            return new PrimitiveElement(((long[]) array)[index]);
+        }
+        if (type == double.class) {
+            return new PrimitiveElement(((double[]) array)[index]);
+        }
+        if (type == float.class) {
+            return new PrimitiveElement(((float[]) array)[index]);
+        }
+        if (type == boolean.class) {
+            return new PrimitiveElement(((boolean[]) array)[index]);
+        }
+        if (type == char.class) {
+            return new PrimitiveElement(((char[]) array)[index]);
+        }
+        if (type == short.class) {
+            return new PrimitiveElement(((short[]) array)[index]);
+        }
+        return new PrimitiveElement(((byte[]) array)[index]);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Method for comparing the members with the ones of another array of the
+     * same component type in bulk.
+     *
+     * @param other The other array.
+     * @return True if the arrays have the same component type and equal
+     * members, else false.
+     */
+    public boolean arrayEquals(PrimitiveArray other) {
+        if (type != other.type) {
+            return false;
+        }
+        if (type == int.class) {
+            return Arrays.equals((int[]) array, (int[]) other.array);
+        }
+        if (type == long.class) {
+            return Arrays.equals((long[]) array, (long[]) other.array);
+        }
+        if (type == double.class) {
+            return Arrays.equals((double[]) array, (double[]) other.array);
+        }
+        if (type == float.class) {
+            return Arrays.equals((float[]) array, (float[]) other.array);
+        }
+        if (type == boolean.class) {
+            return Arrays.equals((boolean[]) array, (boolean[]) other.array);
+        }
+        if (type == char.class) {
+            return Arrays.equals((char[]) array, (char[]) other.array);
+        }
+        if (type == short.class) {
+            return Arrays.equals((short[]) array, (short[]) other.array);
+        }
+        return Arrays.equals((byte[]) array, (byte[]) other.array);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof PrimitiveArray && ((PrimitiveArray) obj).type == type) {
+            return arrayEquals((PrimitiveArray) obj);
+        }
+        return super.equals(obj);
+    }
+}
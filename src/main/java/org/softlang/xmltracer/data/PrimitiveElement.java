@@ -1,40 +1,244 @@
 package org.softlang.xmltracer.data;
 
-import java.util.Objects;
-
+/**
+ * An element holding a primitive value. Numbers, characters and booleans from
+ * Java are held as typed values, their text is only created when it is
+ * needed. Two PrimitiveElements are equal if their texts are equal, typed
+ * values of the same type are compared without their text and integral
+ * numbers and booleans are compared with a text without creating their own.
+ */
 public class PrimitiveElement implements Element {
 
-    private final String value;
+    private static final int TEXT = 0;
+    private static final int LONG = 1;
+    private static final int DOUBLE = 2;
+    private static final int FLOAT = 3;
+    private static final int BOOLEAN = 4;
+    private static final int CHAR = 5;
+
+    private final int kind;
+    private final long bits;
+    private String value;
 
     public PrimitiveElement(String value) {
         if (value == null) {
             throw new IllegalArgumentException("Null value is not allowed.");
         }
 
+        this.kind = TEXT;
+        this.bits = 0;
         this.value = value;
     }
 
+    public PrimitiveElement(long value) {
+        this(LONG, value);
+    }
+
+    public PrimitiveElement(double value) {
+        this(DOUBLE, Double.doubleToLongBits(value));
+    }
+
+    public PrimitiveElement(float value) {
+        this(FLOAT, Float.floatToIntBits(value));
+    }
+
+    public PrimitiveElement(boolean value) {
+        this(BOOLEAN, value ? 1 : 0);
+    }
+
+    public PrimitiveElement(char value) {
+        this(CHAR, value);
+    }
+
     public PrimitiveElement(Boolean value) {
-        this(value.toString());
+        this(value.booleanValue());
     }
 
     public PrimitiveElement(Character value) {
-        this(value.toString());
+        this(value.charValue());
     }
 
+    /**
+     * Constructor for a Number. Long, Integer, Short, Byte, Double and Float
+     * are held as typed values, other Numbers by their text.
+     *
+     * @param value The Number.
+     */
     public PrimitiveElement(Number value) {
-        this(value.toString());
+        this.kind = kindOf(value);
+        switch (kind) {
+            case LONG:
+                this.bits = value.longValue();
+                break;
+            case DOUBLE:
+                this.bits = Double.doubleToLongBits(value.doubleValue());
+                break;
+            case FLOAT:
+                this.bits = Float.floatToIntBits(value.floatValue());
+                break;
+            default:
+                this.bits = 0;
+                this.value = value.toString();
+        }
+    }
+
+    private PrimitiveElement(int kind, long bits) {
+        this.kind = kind;
+        this.bits = bits;
     }
 
+    /**
+     * Helper method for the kind a Number is held as.
+     *
+     * @param value The Number.
+     * @return The kind.
+     */
+    private static int kindOf(Number value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return LONG;
+        }
+        if (value instanceof Double) {
+            return DOUBLE;
+        }
+        if (value instanceof Float) {
+            return FLOAT;
+        }
+        return TEXT;
+    }
+
+    /**
+     * Method for returning the text of the value. The text of a typed value
+     * is created on the first call.
+     *
+     * @return The text.
+     */
     public String getValue() {
-        return value;
+        String text = value;
+        if (text == null) {
+            // Racing threads create equal Strings, so no lock is needed.
+            text = createText();
+            value = text;
+        }
+        return text;
+    }
+
+    /**
+     * Method for returning the Java type of the value.
+     *
+     * @return String.class for text, else the primitive class of the value.
+     */
+    public Class<?> getType() {
+        switch (kind) {
+            case LONG:
+                return long.class;
+            case DOUBLE:
+                return double.class;
+            case FLOAT:
+                return float.class;
+            case BOOLEAN:
+                return boolean.class;
+            case CHAR:
+                return char.class;
+            default:
+                return String.class;
+        }
+    }
+
+    private String createText() {
+        switch (kind) {
+            case LONG:
+                return Long.toString(bits);
+            case DOUBLE:
+                return Double.toString(Double.longBitsToDouble(bits));
+            case FLOAT:
+                return Float.toString(Float.intBitsToFloat((int) bits));
+            case BOOLEAN:
+                return bits != 0 ? "true" : "false";
+            default:
+                return String.valueOf((char) bits);
+        }
+    }
+
+    /**
+     * Method for checking if the text of the value equals a text, for example
+     * of an XML element. Integral numbers, booleans and characters are
+     * compared without creating their text.
+     *
+     * @param text The text.
+     * @return True if the texts are equal, else false.
+     */
+    public boolean valueEquals(CharSequence text) {
+        switch (kind) {
+            case LONG:
+                return digitsEqual(bits, text);
+            case BOOLEAN:
+                return (bits != 0 ? "true" : "false").contentEquals(text);
+            case CHAR:
+                return text.length() == 1 && text.charAt(0) == (char) bits;
+            default:
+                return getValue().contentEquals(text);
+        }
+    }
+
+    /**
+     * Helper method for comparing the decimal text of a long with a text,
+     * digit by digit from the end. Negative numbers are handled as negative
+     * remainders, so Long.MIN_VALUE needs no special case.
+     *
+     * @param number The number.
+     * @param text The text.
+     * @return True if the text is the decimal text of the number, else false.
+     */
+    private static boolean digitsEqual(long number, CharSequence text) {
+        int i = text.length();
+        long rest = number < 0 ? number : -number;
+        do {
+            if (--i < 0 || text.charAt(i) != '0' - rest % 10) {
+                return false;
+            }
+            rest /= 10;
+        } while (rest != 0);
+
+        if (number < 0 && (--i < 0 || text.charAt(i) != '-')) {
+            return false;
+        }
+        return i == 0;
+    }
+
+    /**
+     * Helper method for the String hash of the decimal text of a long,
+     * computed without creating the text.
+     *
+     * @param number The number.
+     * @return The hash of the text.
+     */
+    private static int digitsHash(long number) {
+        int hash = 0;
+        int power = 1;
+        long rest = number < 0 ? number : -number;
+        do {
+            hash += (int) ('0' - rest % 10) * power;
+            power *= 31;
+            rest /= 10;
+        } while (rest != 0);
+
+        if (number < 0) {
+            hash += '-' * power;
+        }
+        return hash;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 67 * hash + Objects.hashCode(this.value);
-        return hash;
+        switch (kind) {
+            case LONG:
+                return 67 * hash + digitsHash(bits);
+            case CHAR:
+                return 67 * hash + (char) bits;
+            default:
+                return 67 * hash + getValue().hashCode();
+        }
     }
 
     @Override
@@ -49,12 +253,21 @@ public class PrimitiveElement implements Element {
 
         final PrimitiveElement other = (PrimitiveElement) obj;
 
-        return this.value.equals(other.value);
+        if (kind == other.kind && kind != TEXT) {
+            return bits == other.bits;
+        }
+        if (other.kind == TEXT) {
+            return valueEquals(other.value);
+        }
+        if (kind == TEXT) {
+            return other.valueEquals(value);
+        }
+        return getValue().equals(other.getValue());
     }
 
     @Override
     public String toString() {
-        return value;
+        return getValue();
     }
 
 }
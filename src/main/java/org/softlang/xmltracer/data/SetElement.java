@@ -1,15 +1,36 @@
 package org.softlang.xmltracer.data;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Set;
 
 public class SetElement extends CollectionElement {
 
-    public SetElement(Set<Element> set) {
-        super(set);
+    /**
+     * Creates a SetElement of the given members, which are kept as they are
+     * given. Members with equal content are not merged, as they can stand for
+     * different objects of a Java Set.
+     *
+     * @param members The members.
+     */
+    public SetElement(Collection<Element> members) {
+        super(members);
     }
 
+    /**
+     * Method for returning the members as a Set. If the members were not given
+     * as a Set, they are only distinct by identity.
+     *
+     * @return The members.
+     */
     public Set<Element> getElementSet() {
-        return Collections.unmodifiableSet((Set<Element>) collection);
+        if (collection instanceof Set) {
+            return Collections.unmodifiableSet((Set<Element>) collection);
+        }
+
+        Set<Element> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(collection);
+        return Collections.unmodifiableSet(set);
     }
 }
@@ -0,0 +1,75 @@
+package org.softlang.xmltracer.data;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Intern helper class for computing the cached structural hashes of a tree
+ * without recursion. The hashes of all descendants are computed bottom-up
+ * first, so computing the hash of an element only reads cached hashes. Shared
+ * elements are expanded once, so trees which share subtrees are hashed in
+ * time linear to the number of distinct elements.
+ */
+final class StructuralHash {
+
+    private StructuralHash() {
+    }
+
+    /**
+     * Method for computing and caching the hashes of an element and of all of
+     * its descendants whose hash is not cached yet.
+     *
+     * @param root The element.
+     */
+    static void compute(Element root) {
+        Set<Element> expanded = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Element> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        // Post-order: an element is hashed when it is on top of the stack the
+        // second time, after all of its children.
+        while (!stack.isEmpty()) {
+            Element element = stack.peek();
+            if (isHashed(element)) {
+                stack.pop();
+                continue;
+            }
+
+            if (!expanded.add(element)) {
+                stack.pop();
+                if (element instanceof ObjectElement) {
+                    ((ObjectElement) element).cacheHash();
+                } else {
+                    ((CollectionElement) element).cacheHash();
+                }
+                continue;
+            }
+
+            Iterable<Element> children = element instanceof ObjectElement
+                    ? ((ObjectElement) element).getElementMap().values()
+                    : ((CollectionElement) element).collection;
+            for (Element child : children) {
+                if (!isHashed(child) && !expanded.contains(child)) {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method to check if an element needs no hashing, as it is a
+     * primitive, null or its hash is cached.
+     */
+    private static boolean isHashed(Element element) {
+        if (element instanceof ObjectElement) {
+            return ((ObjectElement) element).isHashed();
+        }
+        if (element instanceof CollectionElement) {
+            return ((CollectionElement) element).isHashed();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,409 @@
+package org.softlang.xmltracer.data;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary format for CompactTrees, so a parsed document can be stored
+ * once and loaded again without parsing its XML. A snapshot is read in a
+ * single pass into the arrays of a CompactTree, which can be compared directly
+ * or viewed as an ObjectElement without building all Elements.
+ *
+ * The format consists of unsigned LEB128 varints and raw bytes:
+ * <pre>
+ * "XTS" version          the magic bytes and the format version 1
+ * names                  count, then the UTF-8 length and bytes of each name
+ * values                 count, the encoding (1 for Latin-1, 2 for UTF-16BE),
+ *                        the length of each value in chars, then their text
+ * nodes                  count, then the nodes in preorder:
+ *                        (name id + 1) &lt;&lt; 3 | kind, then the number of
+ *                        children, or the value id of a primitive
+ * </pre>
+ * Equal values are stored once. The root is the first node, has no name and
+ * is an object.
+ */
+public final class TreeSnapshot {
+
+    private static final byte[] MAGIC = {'X', 'T', 'S'};
+    private static final int VERSION = 1;
+    private static final int LATIN_1 = 1;
+    private static final int UTF_16 = 2;
+
+    private TreeSnapshot() {
+    }
+
+    /**
+     * Method for writing a tree of Elements as a snapshot.
+     *
+     * @param root The root of the tree.
+     * @param file The file of the snapshot.
+     * @throws IOException If any IO errors occur.
+     */
+    public static void write(ObjectElement root, File file) throws IOException {
+        write(CompactTree.of(root), file);
+    }
+
+    /**
+     * Method for writing a CompactTree as a snapshot.
+     *
+     * @param tree The tree.
+     * @param file The file of the snapshot.
+     * @throws IOException If any IO errors occur.
+     */
+    public static void write(CompactTree tree, File file) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            write(tree, out);
+        }
+    }
+
+    /**
+     * Method for writing a CompactTree as a snapshot to a stream, which is not
+     * closed.
+     *
+     * @param tree The tree.
+     * @param out The stream.
+     * @throws IOException If any IO errors occur.
+     */
+    public static void write(CompactTree tree, OutputStream out) throws IOException {
+        Map<String, Integer> nameIds = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        Map<String, Integer> valueIds = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+
+        int[] stack = new int[64];
+        int depth = 0;
+        stack[depth++] = 0;
+        while (depth > 0) {
+            int node = stack[--depth];
+
+            int nameId = -1;
+            String name = tree.getName(node);
+            if (name != null) {
+                nameId = nameIds.computeIfAbsent(name, k -> {
+                    names.add(k);
+                    return names.size() - 1;
+                });
+            }
+            writeVarint(nodes, (nameId + 1) << 3 | tree.getKind(node));
+
+            if (tree.getKind(node) == CompactTree.PRIMITIVE) {
+                writeVarint(nodes, valueIds.computeIfAbsent(tree.getValue(node), k -> {
+                    values.add(k);
+                    return values.size() - 1;
+                }));
+                continue;
+            }
+
+            int count = tree.getChildCount(node);
+            writeVarint(nodes, count);
+            if (depth + count > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, depth + count));
+            }
+            // Pushed in reverse, so the children are written in their order.
+            int child = tree.getFirstChild(node);
+            for (int i = depth + count - 1; i >= depth; i--) {
+                stack[i] = child;
+                child = tree.getNextSibling(child);
+            }
+            depth += count;
+        }
+
+        out.write(MAGIC);
+        out.write(VERSION);
+
+        writeVarint(out, names.size());
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes);
+        }
+
+        boolean latin1 = true;
+        for (String value : values) {
+            for (int i = 0; i < value.length() && latin1; i++) {
+                latin1 = value.charAt(i) <= 0xFF;
+            }
+        }
+        writeVarint(out, values.size());
+        out.write(latin1 ? LATIN_1 : UTF_16);
+        for (String value : values) {
+            writeVarint(out, value.length());
+        }
+        for (String value : values) {
+            out.write(value.getBytes(latin1 ? StandardCharsets.ISO_8859_1 : StandardCharsets.UTF_16BE));
+        }
+
+        writeVarint(out, tree.size());
+        nodes.writeTo(out);
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    /**
+     * Method for reading a snapshot file with a single read.
+     *
+     * @param file The file of the snapshot.
+     * @return The CompactTree.
+     * @throws IOException If any IO errors occur or the file is no valid
+     * snapshot.
+     */
+    public static CompactTree read(File file) throws IOException {
+        return read(Files.readAllBytes(file.toPath()));
+    }
+
+    /**
+     * Method for reading a snapshot from a stream, which is not closed.
+     *
+     * @param in The stream.
+     * @return The CompactTree.
+     * @throws IOException If any IO errors occur or the stream holds no valid
+     * snapshot.
+     */
+    public static CompactTree read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1 << 16];
+        for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+            out.write(buffer, 0, n);
+        }
+        return read(out.toByteArray());
+    }
+
+    /**
+     * Method for reading a snapshot from the remaining bytes of a buffer, for
+     * example a memory-mapped file. The position of the buffer is not changed.
+     *
+     * @param buffer The buffer.
+     * @return The CompactTree.
+     * @throws IOException If the buffer holds no valid snapshot.
+     */
+    public static CompactTree read(ByteBuffer buffer) throws IOException {
+        if (buffer.hasArray()) {
+            return new Reader(buffer.array(), buffer.arrayOffset() + buffer.position(),
+                    buffer.arrayOffset() + buffer.limit()).read();
+        }
+
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return read(bytes);
+    }
+
+    /**
+     * Method for reading a snapshot from a byte array.
+     *
+     * @param bytes The bytes of the snapshot.
+     * @return The CompactTree.
+     * @throws IOException If the bytes are no valid snapshot.
+     */
+    public static CompactTree read(byte[] bytes) throws IOException {
+        return new Reader(bytes, 0, bytes.length).read();
+    }
+
+    /**
+     * Intern helper class decoding the bytes of a snapshot.
+     */
+    private static class Reader {
+
+        private final byte[] data;
+        private final int end;
+        private int pos;
+
+        public Reader(byte[] data, int start, int end) {
+            this.data = data;
+            this.pos = start;
+            this.end = end;
+        }
+
+        public CompactTree read() throws IOException {
+            for (byte b : MAGIC) {
+                if (readByte() != b) {
+                    throw invalid("unknown format");
+                }
+            }
+            if (readByte() != VERSION) {
+                throw invalid("unsupported version");
+            }
+
+            String[] nameTable = new String[readTableSize(1)];
+            for (int i = 0; i < nameTable.length; i++) {
+                int length = readCount();
+                require(length);
+                nameTable[i] = new String(data, pos, length, StandardCharsets.UTF_8);
+                pos += length;
+            }
+
+            int valueCount = readTableSize(1);
+            int encoding = readByte();
+            if (encoding != LATIN_1 && encoding != UTF_16) {
+                throw invalid("unknown encoding");
+            }
+            int[] valueStarts = new int[valueCount + 1];
+            for (int i = 0; i < valueCount; i++) {
+                valueStarts[i + 1] = valueStarts[i] + readCount();
+                if (valueStarts[i + 1] < 0) {
+                    throw invalid("text too long");
+                }
+            }
+            char[] text = readText(valueStarts[valueCount], encoding);
+
+            int size = readTableSize(2);
+            if (size == 0) {
+                throw invalid("no root");
+            }
+            byte[] kinds = new byte[size];
+            int[] names = new int[size];
+            int[] firstChildren = new int[size];
+            int[] nextSiblings = new int[size];
+            int[] values = new int[size];
+
+            // The open nodes with their last child and number of missing
+            // children.
+            int[] parents = new int[16];
+            int[] lastChildren = new int[16];
+            int[] missing = new int[16];
+            int depth = 0;
+
+            for (int node = 0; node < size; node++) {
+                int header = readCount();
+                int kind = header & 7;
+                int name = (header >>> 3) - 1;
+                if (kind > CompactTree.PRIMITIVE || name >= nameTable.length) {
+                    throw invalid("bad node " + node);
+                }
+                if (node == 0 ? kind != CompactTree.OBJECT || name >= 0 : depth == 0) {
+                    throw invalid("not a single root object");
+                }
+
+                kinds[node] = (byte) kind;
+                names[node] = name;
+                firstChildren[node] = -1;
+                nextSiblings[node] = -1;
+
+                if (depth > 0) {
+                    int parent = parents[depth - 1];
+                    if (lastChildren[depth - 1] < 0) {
+                        firstChildren[parent] = node;
+                    } else {
+                        nextSiblings[lastChildren[depth - 1]] = node;
+                    }
+                    lastChildren[depth - 1] = node;
+                    missing[depth - 1]--;
+                }
+
+                int value = readCount();
+                if (kind == CompactTree.PRIMITIVE) {
+                    if (value >= valueCount) {
+                        throw invalid("bad value of node " + node);
+                    }
+                    values[node] = value;
+                } else {
+                    values[node] = value;
+                    if (value > 0) {
+                        if (depth == parents.length) {
+                            parents = Arrays.copyOf(parents, depth * 2);
+                            lastChildren = Arrays.copyOf(lastChildren, depth * 2);
+                            missing = Arrays.copyOf(missing, depth * 2);
+                        }
+                        parents[depth] = node;
+                        lastChildren[depth] = -1;
+                        missing[depth++] = value;
+                    }
+                }
+
+                while (depth > 0 && missing[depth - 1] == 0) {
+                    depth--;
+                }
+            }
+
+            if (depth > 0 || pos != end) {
+                throw invalid("node count does not match");
+            }
+
+            return new CompactTree(size, kinds, names, firstChildren, nextSiblings, values, nameTable, text, valueStarts);
+        }
+
+        private char[] readText(int length, int encoding) throws IOException {
+            char[] text = new char[length];
+            if (encoding == LATIN_1) {
+                require(length);
+                for (int i = 0; i < length; i++) {
+                    text[i] = (char) (data[pos + i] & 0xFF);
+                }
+                pos += length;
+            } else {
+                require(2L * length);
+                for (int i = 0; i < length; i++) {
+                    text[i] = (char) ((data[pos] & 0xFF) << 8 | (data[pos + 1] & 0xFF));
+                    pos += 2;
+                }
+            }
+            return text;
+        }
+
+        private int readByte() throws IOException {
+            if (pos >= end) {
+                throw invalid("unexpected end");
+            }
+            return data[pos++];
+        }
+
+        /**
+         * Helper method for reading a varint which has to fit into a
+         * non-negative int.
+         */
+        private int readCount() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    if (value < 0) {
+                        throw invalid("number too large");
+                    }
+                    return value;
+                }
+            }
+            throw invalid("number too large");
+        }
+
+        /**
+         * Helper method for reading the size of a table whose entries take at
+         * least the given number of bytes, so a broken size can not allocate
+         * large arrays.
+         */
+        private int readTableSize(int entryBytes) throws IOException {
+            int size = readCount();
+            require((long) entryBytes * size);
+            return size;
+        }
+
+        private void require(long length) throws IOException {
+            if (length > end - pos) {
+                throw invalid("unexpected end");
+            }
+        }
+
+        private IOException invalid(String reason) {
+            return new IOException("Invalid snapshot: " + reason + " at byte " + pos + ".");
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package org.softlang.xmltracer.parser;
+
+/**
+ * The counters of a ParseCache: how often a file was found in memory or on
+ * disk, how often it had to be parsed, how many entries were invalidated by
+ * changed files and evicted for the heap budget.
+ */
+public class CacheStatistics {
+
+    private final long memoryHits;
+    private final long diskHits;
+    private final long misses;
+    private final long invalidations;
+    private final long evictions;
+    private final int entries;
+    private final long memoryBytes;
+
+    public CacheStatistics(long memoryHits, long diskHits, long misses, long invalidations, long evictions, int entries, long memoryBytes) {
+        this.memoryHits = memoryHits;
+        this.diskHits = diskHits;
+        this.misses = misses;
+        this.invalidations = invalidations;
+        this.evictions = evictions;
+        this.entries = entries;
+        this.memoryBytes = memoryBytes;
+    }
+
+    public long getMemoryHits() {
+        return memoryHits;
+    }
+
+    public long getDiskHits() {
+        return diskHits;
+    }
+
+    /**
+     * Method for returning the number of files which had to be parsed.
+     *
+     * @return The number of misses.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Method for returning the number of entries which were dropped because
+     * the content of their file changed.
+     *
+     * @return The number of invalidations.
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Method for returning the number of entries held in memory.
+     *
+     * @return The number of entries.
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Method for returning the estimated heap size of the entries held in
+     * memory.
+     *
+     * @return The size in bytes.
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * Method for returning the share of the lookups served by memory or disk.
+     *
+     * @return The hit rate between 0 and 1.
+     */
+    public double getHitRate() {
+        long lookups = memoryHits + diskHits + misses;
+        return lookups == 0 ? 0 : (double) (memoryHits + diskHits) / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d memory hits, %d disk hits, %d misses (%.1f%% hits), %d invalidations, %d evictions, %d entries, %.1f MB",
+                memoryHits, diskHits, misses, 100 * getHitRate(), invalidations, evictions, entries, memoryBytes / 1e6);
+    }
+}
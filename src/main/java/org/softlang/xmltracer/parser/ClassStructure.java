@@ -0,0 +1,156 @@
+package org.softlang.xmltracer.parser;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The cached reflective structure of a class: the fields the JavaObjectParser
+ * reads, including inherited ones, together with fast accessors. Every class is
+ * introspected only once per JVM.
+ */
+final class ClassStructure {
+
+    private static final ClassValue<ClassStructure> STRUCTURES = new ClassValue<ClassStructure>() {
+        @Override
+        protected ClassStructure computeValue(Class<?> type) {
+            return new ClassStructure(type);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private final FieldAccessor[] fields;
+    private final Map<String, Integer> indices = new HashMap<>();
+    private final String failure;
+
+    private ClassStructure(Class<?> clazz) {
+        List<FieldAccessor> accessors = new ArrayList<>();
+        Set<String> names = new HashSet<>();
+        String error = null;
+
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        walk:
+        for (Class<?> type = clazz; type != null && type != Object.class; type = type.getSuperclass()) {
+            List<FieldAccessor> declared = new ArrayList<>();
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
+                    continue;
+                }
+
+                // A field shadowed by a subclass field is not visible by its name.
+                if (names.contains(field.getName())) {
+                    continue;
+                }
+
+                try {
+                    field.setAccessible(true);
+                    declared.add(new FieldAccessor(field.getName(), field.getType(), lookup.unreflectGetter(field).asType(GETTER_TYPE)));
+                } catch (IllegalAccessException | RuntimeException ex) {
+                    // Superclasses in packages which are not open to the
+                    // parser, like the ones of the JDK on Java 9 and later,
+                    // end the walk. Only the fields of the class itself have
+                    // to be readable.
+                    if (type == clazz) {
+                        error = ex.getMessage();
+                    }
+                    break walk;
+                }
+            }
+
+            for (FieldAccessor accessor : declared) {
+                names.add(accessor.getName());
+                accessors.add(accessor);
+            }
+        }
+
+        this.fields = accessors.toArray(new FieldAccessor[accessors.size()]);
+        for (int i = 0; i < fields.length; i++) {
+            indices.put(fields[i].getName(), i);
+        }
+        this.failure = error;
+    }
+
+    /**
+     * Method for getting the cached structure of a class.
+     *
+     * @param clazz The class.
+     * @return The structure of the class.
+     * @throws IllegalAccessException If a field of the class is inaccessible.
+     */
+    static ClassStructure of(Class<?> clazz) throws IllegalAccessException {
+        ClassStructure structure = STRUCTURES.get(clazz);
+        if (structure.failure != null) {
+            throw new IllegalAccessException(structure.failure);
+        }
+        return structure;
+    }
+
+    /**
+     * Method for returning the readable fields of the class.
+     *
+     * @return The fields, declared ones before inherited ones.
+     */
+    FieldAccessor[] getFields() {
+        return fields;
+    }
+
+    /**
+     * Method for finding a readable field by its name.
+     *
+     * @param name The name of the field.
+     * @return The index of the field in getFields(), or -1.
+     */
+    int indexOf(Object name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Intern helper class for reading a single field.
+     */
+    static final class FieldAccessor {
+
+        private final String name;
+        private final Class<?> type;
+        private final MethodHandle getter;
+
+        private FieldAccessor(String name, Class<?> type, MethodHandle getter) {
+            this.name = name;
+            this.type = type;
+            this.getter = getter;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getType() {
+            return type;
+        }
+
+        /**
+         * Method for reading the field of an object.
+         *
+         * @param object The object to be read.
+         * @return The value of the field.
+         */
+        public Object get(Object object) {
+            try {
+                return (Object) getter.invokeExact(object);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+    }
+}
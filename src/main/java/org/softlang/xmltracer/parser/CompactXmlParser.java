@@ -0,0 +1,139 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.softlang.xmltracer.data.CompactTree;
+
+/**
+ * A streaming parser which reads a document directly into a CompactTree. The
+ * Element view of the result is identical to the result of the DomXmlParser.
+ */
+public class CompactXmlParser {
+
+    private final CompactTree tree;
+
+    /**
+     * Constructor for the class CompactXmlParser.
+     *
+     * @param file The File to be parsed.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public CompactXmlParser(File file) throws XMLStreamException, IOException {
+        try (InputStream inputStream = new FileInputStream(file)) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+            try {
+                this.tree = parseDocument(reader);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Constructor for the class CompactXmlParser.
+     *
+     * @param path The path to the File to be parsed.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public CompactXmlParser(String path) throws XMLStreamException, IOException {
+        this(new File(path));
+    }
+
+    /**
+     * Method for returning the parsed CompactTree.
+     *
+     * @return The parsed CompactTree.
+     */
+    public CompactTree getParseResult() {
+        return tree;
+    }
+
+    /**
+     * Helper method for parsing a whole document. Whether an element becomes
+     * an object or a primitive node is only known at its first child element
+     * or its end, so the node of an element is started lazily.
+     *
+     * @param reader The reader positioned before the root element.
+     * @return The parsed CompactTree.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    private CompactTree parseDocument(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            // skip prolog
+        }
+
+        CompactTree.Builder builder = new CompactTree.Builder();
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(null));
+
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    Frame parent = stack.peek();
+                    if (!parent.started) {
+                        builder.startObject(parent.name);
+                        parent.started = true;
+                        parent.text = null;
+                    }
+                    stack.push(new Frame(XmlElements.getName(reader)));
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    stack.peek().appendText(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    Frame frame = stack.pop();
+                    if (frame.started) {
+                        builder.end();
+                    } else if (stack.isEmpty()) {
+                        builder.startObject(null).end();
+                    } else {
+                        builder.value(frame.name, frame.text == null ? "" : frame.text);
+                    }
+
+                    if (stack.isEmpty()) {
+                        return builder.build();
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Intern helper class holding the state of an element whose end tag has
+     * not been read yet.
+     */
+    private static class Frame {
+
+        private final String name;
+        private boolean started;
+        private StringBuilder text;
+
+        public Frame(String name) {
+            this.name = name;
+        }
+
+        public void appendText(XMLStreamReader reader) {
+            if (started) {
+                return;
+            }
+            if (text == null) {
+                text = new StringBuilder();
+            }
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+    }
+}
@@ -1,20 +1,27 @@
 package org.softlang.xmltracer.parser;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import javax.xml.parsers.*;
-import org.softlang.xmltracer.data.CollectionElement;
 import org.softlang.xmltracer.data.Element;
 import org.softlang.xmltracer.data.ObjectElement;
 import org.softlang.xmltracer.data.PrimitiveElement;
 import org.w3c.dom.*;
+import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
 
 public class DomXmlParser {
 
+    private static final DocumentBuilderFactory DOC_FACTORY = DocumentBuilderFactory.newInstance();
+    private static final ThreadLocal<DocumentBuilder> DOC_BUILDER = new ThreadLocal<>();
+
+    private final SymbolTable symbols;
     private final ObjectElement rootObjectElement;
 
     /**
@@ -26,12 +33,21 @@ public class DomXmlParser {
      * @throws IOException If any IO errors occur.
      */
     public DomXmlParser(File file) throws ParserConfigurationException, SAXException, IOException {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
+        this(file, new SymbolTable());
+    }
 
-        org.w3c.dom.Element root = docBuilder.parse(file).getDocumentElement();
-        root.normalize();
-        this.rootObjectElement = parseToObject(root);
+    /**
+     * Constructor for the class DomXmlParser with a SymbolTable, which may be
+     * shared with other parses.
+     *
+     * @param file The File to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(File file, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(docBuilder -> docBuilder.parse(file), symbols);
     }
 
     /**
@@ -46,6 +62,152 @@ public class DomXmlParser {
         this(new File(path));
     }
 
+    /**
+     * Constructor for the class DomXmlParser with a SymbolTable, which may be
+     * shared with other parses.
+     *
+     * @param path The path to the File to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(String path, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(new File(path), symbols);
+    }
+
+    /**
+     * Constructor for the class DomXmlParser. The stream is read to its end,
+     * but not closed.
+     *
+     * @param inputStream The InputStream to be parsed.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(InputStream inputStream) throws ParserConfigurationException, SAXException, IOException {
+        this(inputStream, new SymbolTable());
+    }
+
+    /**
+     * Constructor for the class DomXmlParser with a SymbolTable, which may be
+     * shared with other parses. The stream is read to its end, but not closed.
+     *
+     * @param inputStream The InputStream to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(InputStream inputStream, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(docBuilder -> docBuilder.parse(new InputSource(new UnclosedInputStream(inputStream))), symbols);
+    }
+
+    /**
+     * Constructor for the class DomXmlParser. The reader is read to its end,
+     * but not closed.
+     *
+     * @param reader The Reader to be parsed.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(Reader reader) throws ParserConfigurationException, SAXException, IOException {
+        this(reader, new SymbolTable());
+    }
+
+    /**
+     * Constructor for the class DomXmlParser with a SymbolTable, which may be
+     * shared with other parses. The reader is read to its end, but not closed.
+     *
+     * @param reader The Reader to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(Reader reader, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(docBuilder -> docBuilder.parse(new InputSource(new UnclosedReader(reader))), symbols);
+    }
+
+    /**
+     * Constructor for the class DomXmlParser.
+     *
+     * @param bytes The encoded document to be parsed.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(byte[] bytes) throws ParserConfigurationException, SAXException, IOException {
+        this(bytes, new SymbolTable());
+    }
+
+    /**
+     * Constructor for the class DomXmlParser with a SymbolTable, which may be
+     * shared with other parses.
+     *
+     * @param bytes The encoded document to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(byte[] bytes, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(new ByteArrayInputStream(bytes), symbols);
+    }
+
+    /**
+     * Constructor for the class DomXmlParser. The remaining bytes of the
+     * buffer are parsed, its position is not changed.
+     *
+     * @param buffer The ByteBuffer holding the encoded document.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(ByteBuffer buffer) throws ParserConfigurationException, SAXException, IOException {
+        this(buffer, new SymbolTable());
+    }
+
+    /**
+     * Constructor for the class DomXmlParser with a SymbolTable, which may be
+     * shared with other parses. The remaining bytes of the buffer are parsed,
+     * its position is not changed.
+     *
+     * @param buffer The ByteBuffer holding the encoded document.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public DomXmlParser(ByteBuffer buffer, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(new ByteBufferInputStream(buffer.duplicate()), symbols);
+    }
+
+    /**
+     * Constructor for the class DomXmlParser doing the parsing for all other
+     * constructors.
+     *
+     * @param input The parse call for the input.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    private DomXmlParser(Input input, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this.symbols = symbols;
+
+        DocumentBuilder docBuilder = getDocumentBuilder();
+        try {
+            // No normalize(), it recurses over the whole document and the
+            // text content is concatenated from adjacent text nodes anyway.
+            org.w3c.dom.Element root = input.parse(docBuilder).getDocumentElement();
+            this.rootObjectElement = parseToObject(root);
+        } finally {
+            docBuilder.reset();
+        }
+    }
+
     /**
      * Method for returning the parsed ObjectElement.
      * @return The parsed ObjectElement.
@@ -55,28 +217,37 @@ public class DomXmlParser {
     }
     
     /**
-     * Helper method for helper methods.
+     * Helper method for getting the DocumentBuilder of the current thread.
+     * Looking up and configuring the factory and creating a builder cost more
+     * than parsing a small document, so every thread keeps one builder,
+     * which is reset after each parse.
      *
-     * @param node The DomXml Node to be parsed.
-     * @return The DomXml Node parsed to the corresponding Element type.
+     * @return The DocumentBuilder of the current thread.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be
+     * created.
      */
-    private Element parseToElement(Node node) {
-        if (hasSubnodes(node)) {
-            return parseToObject(node);
-        } else {
-            return parseToPrimitive(node);
+    static DocumentBuilder getDocumentBuilder() throws ParserConfigurationException {
+        DocumentBuilder docBuilder = DOC_BUILDER.get();
+        if (docBuilder == null) {
+            // The factory itself is not thread safe.
+            synchronized (DOC_FACTORY) {
+                docBuilder = DOC_FACTORY.newDocumentBuilder();
+            }
+            DOC_BUILDER.set(docBuilder);
         }
+        return docBuilder;
     }
 
     /**
-     * Helper method to check if a given Node has Subnodes (Children).
+     * Helper method to check if a given Node has Subnodes (Children). The
+     * children are walked as siblings, without creating a NodeList.
      *
      * @param node The Node to be checked.
      * @return True if the given Node has Subnoded, else false.
      */
-    private boolean hasSubnodes(Node node) {
-        for (int i = 0; i < node.getChildNodes().getLength(); i++) {
-            if (node.getChildNodes().item(i).getNodeType() == Node.ELEMENT_NODE) {
+    static boolean hasSubnodes(Node node) {
+        for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
                 return true;
             }
         }
@@ -91,39 +262,153 @@ public class DomXmlParser {
      * @return The parsed PrimitiveElement.
      */
     private PrimitiveElement parseToPrimitive(Node node) {
-        return new PrimitiveElement(node.getTextContent());
+        return symbols.value(node.getTextContent());
     }
 
     /**
-     * Helper method for parsing to an ObjectElement.
+     * Helper method for parsing to an ObjectElement. Nested elements are
+     * parsed with an explicit stack, so the depth of the document is not
+     * limited by the size of the call stack.
      *
      * @param node The DomXml Node to be parsed.
      * @return The prased ObjectElement.
      */
     private ObjectElement parseToObject(Node node) {
-        Map<String, List<Element>> tempMap = new HashMap<>();
-        Map<String, Element> objectMap = new HashMap<>();
-
-        NodeList nodeList = node.getChildNodes();
+        Deque<Frame> stack = new ArrayDeque<>();
+        Frame frame = new Frame(node);
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Node tempNode = nodeList.item(i);
+        while (true) {
+            Node tempNode = frame.nextElement();
 
-            if (tempNode.getNodeType() != Node.ELEMENT_NODE) {
+            if (tempNode != null) {
+                if (hasSubnodes(tempNode)) {
+                    stack.push(frame);
+                    frame = new Frame(tempNode);
+                } else {
+                    frame.add(symbols.name(tempNode.getNodeName()), parseToPrimitive(tempNode));
+                }
                 continue;
             }
 
-            tempMap.computeIfAbsent(tempNode.getNodeName(), k -> new ArrayList<>()).add(parseToElement(tempNode));
+            ObjectElement objectElement = frame.toObject();
+            if (stack.isEmpty()) {
+                return objectElement;
+            }
+
+            String name = symbols.name(frame.node.getNodeName());
+            frame = stack.pop();
+            frame.add(name, objectElement);
+        }
+    }
+
+    /**
+     * Intern helper interface for parsing an input with a DocumentBuilder.
+     */
+    private static interface Input {
+
+        Document parse(DocumentBuilder docBuilder) throws SAXException, IOException;
+    }
+
+    /**
+     * Intern helper class reading the remaining bytes of a ByteBuffer.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        public ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
         }
 
-        for (Map.Entry<String, List<Element>> entry : tempMap.entrySet()) {
-            if (entry.getValue().size() > 1) {
-                objectMap.put(entry.getKey(), new CollectionElement(entry.getValue()));
-            } else {
-                objectMap.put(entry.getKey(), entry.getValue().get(0));
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+
+    /**
+     * Intern helper class keeping the DocumentBuilder from closing a stream
+     * of the caller.
+     */
+    private static class UnclosedInputStream extends FilterInputStream {
+
+        public UnclosedInputStream(InputStream inputStream) {
+            super(inputStream);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Intern helper class keeping the DocumentBuilder from closing a reader
+     * of the caller.
+     */
+    private static class UnclosedReader extends FilterReader {
+
+        public UnclosedReader(Reader reader) {
+            super(reader);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    /**
+     * Intern helper class holding the state of a Node whose children are
+     * being parsed.
+     */
+    private static class Frame {
+
+        private final Node node;
+        private final NodeList nodeList;
+        private final Map<String, List<Element>> tempMap = new HashMap<>();
+        private int index;
+
+        public Frame(Node node) {
+            this.node = node;
+            this.nodeList = node.getChildNodes();
+        }
+
+        public Node nextElement() {
+            while (index < nodeList.getLength()) {
+                Node tempNode = nodeList.item(index++);
+
+                if (tempNode.getNodeType() == Node.ELEMENT_NODE) {
+                    return tempNode;
+                }
             }
+
+            return null;
+        }
+
+        public void add(String name, Element element) {
+            tempMap.computeIfAbsent(name, k -> new ArrayList<>()).add(element);
         }
 
-        return new ObjectElement(objectMap);
+        public ObjectElement toObject() {
+            return XmlElements.toObject(tempMap);
+        }
     }
 }
@@ -1,25 +1,61 @@
 package org.softlang.xmltracer.parser;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import org.softlang.xmltracer.data.ArrayElement;
 import org.softlang.xmltracer.data.Element;
 import org.softlang.xmltracer.data.ListElement;
 import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveArray;
 import org.softlang.xmltracer.data.PrimitiveElement;
 import org.softlang.xmltracer.data.SetElement;
 
 public class JavaObjectParser {
 
-    private final Set<JavaObjectParserRule> rules = new HashSet<>();
+    private final List<JavaObjectParserRule> rules = new ArrayList<>();
+    private final Map<Class<?>, JavaObjectParserRule> index = new ConcurrentHashMap<>();
+    private volatile ForkJoinPool pool;
+    private volatile int parallelThreshold;
+    private volatile SymbolTable symbols;
+    private final JavaObjectParserRule objectRule = new JavaObjectParserRule(0, clazz -> true, this::parseObject,
+            obj -> new ObjectFrame(obj, ClassStructure.of(obj.getClass()).getFields()));
+    private final JavaObjectParserRule setRule = new JavaObjectParserRule(0, clazz -> Set.class.isAssignableFrom(clazz),
+            obj -> getSetElement((Set) obj),
+            obj -> {
+                Object[] objects = ((Set) obj).toArray();
+                return getMembersFrame(obj, objects.length, i -> objects[i],
+                        elements -> new SetElement(Arrays.asList(elements)));
+            });
+    private final JavaObjectParserRule listRule = new JavaObjectParserRule(0, clazz -> List.class.isAssignableFrom(clazz),
+            obj -> getListElement((List) obj),
+            obj -> {
+                Object[] objects = ((List) obj).toArray();
+                return getMembersFrame(obj, objects.length, i -> objects[i],
+                        elements -> new ListElement(Arrays.asList(elements)));
+            });
+    private final JavaObjectParserRule arrayRule = new JavaObjectParserRule(0, clazz -> clazz.isArray(),
+            obj -> getArrayElement(obj),
+            obj -> obj.getClass().getComponentType().isPrimitive() ? null
+                    : getMembersFrame(obj, Array.getLength(obj), i -> Array.get(obj, i), ArrayElement::new));
+    private final ThreadLocal<ParseContext> context = new ThreadLocal<>();
 
     /**
      * Default Constructor for the class JavaObjectParser.
@@ -30,16 +66,44 @@ public class JavaObjectParser {
                 || Character.class.isAssignableFrom(clazz)
                 || Boolean.class.isAssignableFrom(clazz)
                 || String.class.isAssignableFrom(clazz),
-                obj -> new PrimitiveElement(obj.toString()));
+                obj -> getPrimitiveElement(obj));
 
-        registerParserRule(clazz -> Set.class.isAssignableFrom(clazz),
-                obj -> getSetElement((Set) obj));
+        // Members of Sets, Lists and Arrays are parsed on the stack of the
+        // Parser like the fields of Objects.
+        addRule(setRule);
+        addRule(listRule);
+        addRule(arrayRule);
+    }
 
-        registerParserRule(clazz -> List.class.isAssignableFrom(clazz),
-                obj -> getListElement((List) obj));
+    /**
+     * Method for enabling the parallel parsing of large Java Arrays and
+     * Collections. Their members are parsed by tasks of the given pool, while
+     * the order of List and Array members is kept. When enabled, registered
+     * rules are called concurrently from the threads of the pool, so they have
+     * to be thread safe.
+     *
+     * @param pool The pool for the parsing tasks, or null for parsing on the
+     * calling thread only.
+     * @param threshold The minimal number of members parsed in parallel.
+     */
+    public final void setParallelism(ForkJoinPool pool, int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("The threshold must be positive.");
+        }
 
-        registerParserRule(clazz -> clazz.isArray(),
-                obj -> getArrayElement(obj));
+        this.parallelThreshold = threshold;
+        this.pool = pool;
+    }
+
+    /**
+     * Method for setting the SymbolTable which shares the PrimitiveElements of
+     * repeated values. The table is shared by all following parses, by
+     * default every parse uses its own table.
+     *
+     * @param symbols The SymbolTable, or null for a new table per parse.
+     */
+    public final void setSymbolTable(SymbolTable symbols) {
+        this.symbols = symbols;
     }
 
     /**
@@ -51,7 +115,38 @@ public class JavaObjectParser {
      * specified Java Object.
      */
     public final void registerParserRule(Predicate<Class<? extends Object>> check, Function<Object, Element> rule) {
-        rules.add(new JavaObjectParserRule(check, rule));
+        registerParserRule(0, check, rule);
+    }
+
+    /**
+     * Method for registering additional parser rules with a priority. Rules
+     * with a higher priority are tried first, rules with the same priority in
+     * the order of their registration. Since the check only gets the class of
+     * an object, its result is computed once per class.
+     *
+     * @param priority The priority of the rule.
+     * @param check The predicate for the given function. Checks if the
+     * funtion can be used with the conditions specified in the predicate.
+     * @param rule The function for creating an Element type from a
+     * specified Java Object.
+     */
+    public final void registerParserRule(int priority, Predicate<Class<? extends Object>> check, Function<Object, Element> rule) {
+        addRule(new JavaObjectParserRule(priority, check, rule, null));
+    }
+
+    /**
+     * Helper method for inserting a rule after all rules with the same or a
+     * higher priority.
+     *
+     * @param rule The rule to be inserted.
+     */
+    private synchronized void addRule(JavaObjectParserRule rule) {
+        int position = 0;
+        while (position < rules.size() && rules.get(position).getPriority() >= rule.getPriority()) {
+            position++;
+        }
+        rules.add(position, rule);
+        index.clear();
     }
 
     /**
@@ -65,50 +160,206 @@ public class JavaObjectParser {
      * language access control, and the field is inaccessible.
      */
     private Element getElement(Object obj) throws IllegalArgumentException, IllegalAccessException {
-        Class<? extends Object> clazz = obj.getClass();
-        
+        return run(new MembersFrame(null, 1, i -> obj, elements -> elements[0]));
+    }
+
+    /**
+     * Helper method for parsing the objects of a frame and all objects they
+     * reference. Objects, Sets, Lists and Arrays are parsed with an explicit
+     * stack of frames, so the depth of the object graph is not limited by the
+     * size of the call stack. Other rules are called directly.
+     *
+     * @param first The frame of the Object to be parsed.
+     * @return The Element built by the frame.
+     * @throws IllegalArgumentException If the specified object is not an
+     * instance of the class or interface declaring the underlying field.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    private Element run(Frame first) throws IllegalArgumentException, IllegalAccessException {
+        ParseContext ctx = context.get();
+        Deque<Frame> stack = new ArrayDeque<>();
+        Frame frame = first;
+        boolean done = false;
+
+        try {
+            while (true) {
+                Object obj = frame.next();
+
+                if (obj == Frame.DONE) {
+                    Element element = frame.build();
+                    if (stack.isEmpty()) {
+                        done = true;
+                        return element;
+                    }
+
+                    ctx.path.remove(frame.object);
+                    ctx.memo.put(frame.object, element);
+                    frame = stack.pop();
+                    frame.deliver(element);
+                    continue;
+                }
+
+                Element element = ctx.memo.get(obj);
+                if (element != null || ctx.memo.containsKey(obj)) {
+                    frame.deliver(element);
+                    continue;
+                }
+
+                JavaObjectParserRule rule = getRule(obj.getClass());
+
+                ctx.enter(obj);
+                Frame child = rule.getExpansion() == null ? null : rule.getExpansion().apply(obj);
+
+                if (child != null) {
+                    stack.push(frame);
+                    frame = child;
+                    continue;
+                }
+
+                try {
+                    element = rule.getRule().apply(obj);
+                } finally {
+                    ctx.path.remove(obj);
+                }
+
+                ctx.memo.put(obj, element);
+                frame.deliver(element);
+            }
+        } finally {
+            if (!done) {
+                // The objects of unfinished frames are no longer on the path.
+                if (frame != first) {
+                    ctx.path.remove(frame.object);
+                }
+                for (Frame unfinished : stack) {
+                    if (unfinished != first) {
+                        ctx.path.remove(unfinished.object);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method for getting the rule for a class.
+     *
+     * @param clazz The class of the Object to be parsed.
+     * @return The rule for the class.
+     */
+    private JavaObjectParserRule getRule(Class<? extends Object> clazz) {
+        JavaObjectParserRule rule = index.get(clazz);
+        if (rule == null) {
+            rule = findRule(clazz);
+        }
+        return rule;
+    }
+
+    /**
+     * Helper method for finding the first registered rule for a class and
+     * adding it to the index. Objects without a rule are parsed to an
+     * ObjectElement. The rule is indexed while holding the same lock as
+     * addRule, so a rule found before a new rule was added never enters the
+     * cleared index.
+     *
+     * @param clazz The class of the Object to be parsed.
+     * @return The rule for the class.
+     */
+    private synchronized JavaObjectParserRule findRule(Class<? extends Object> clazz) {
+        JavaObjectParserRule found = objectRule;
         for (JavaObjectParserRule rule : rules) {
-            if (rule.getCheck().test(clazz)){
-                return rule.getRule().apply(obj);
+            if (rule.getCheck().test(clazz)) {
+                found = rule;
+                break;
             }
         }
 
-        return getObjectElement(obj);
+        index.put(clazz, found);
+        return found;
     }
 
     /**
-     * Method for parsing a Java Object to an ObjectElement.
+     * Method for parsing a Java Object to an ObjectElement. Declared and
+     * inherited fields are read, except static, transient and synthetic ones.
+     * An instance referenced from several places is parsed once and all of
+     * its places share the resulting Element.
      *
      * @param object The Java Object to be parsed.
      * @return The parsed ObjectElement.
      * @throws IllegalArgumentException If the specified object is not an
-     * instance of the class or interface declaring the underlying field.
+     * instance of the class or interface declaring the underlying field, or if
+     * the object graph contains a cyclic reference.
      * @throws IllegalAccessException If a Field of the object is enforcing Java
      * language access control, and the field is inaccessible.
      */
     public ObjectElement getObjectElement(Object object) throws IllegalArgumentException, IllegalAccessException {
-        Map<String, Element> map = new HashMap<>();
+        if (context.get() != null) {
+            return parseObject(object);
+        }
 
-        Field[] fields = object.getClass().getDeclaredFields();
-        for (Field field : fields) {
-            field.setAccessible(true);
-            Object obj = field.get(object);
+        SymbolTable currentSymbols = symbols;
+        ParseContext ctx = new ParseContext(pool != null, currentSymbols == null ? new SymbolTable() : currentSymbols);
+        context.set(ctx);
+        try {
+            ctx.enter(object);
+            return parseObject(object);
+        } finally {
+            context.remove();
+        }
+    }
 
-            if (obj == null || Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers()) || field.isSynthetic()) {
-                continue;
-            }
+    /**
+     * Method for creating a lazy ObjectElement view of a Java Object. The
+     * fields of an Object are read when the map of its ObjectElement is
+     * accessed first, but a value is only converted when its field is
+     * accessed. Nested Objects and the members of Lists and Arrays become
+     * views themselves, which are converted when they are accessed. A
+     * comparison failing early therefore reads only the part of the object
+     * graph it has visited. Sets and values of registered rules are parsed
+     * when their field is accessed, like by getObjectElement(). As fields
+     * without an Element are not in the map, its size and keys depend on the
+     * values; they are found without converting Objects, Sets, Lists and
+     * Arrays, but values of registered rules are converted for them.
+     *
+     * The views are equal to the result of getObjectElement(), as long as the
+     * objects are not changed while the views are used. They must be used by
+     * one thread at a time, so not with a parallel Comparator. Errors occurring
+     * on access are thrown then, an inaccessible field as an
+     * IllegalStateException and a cyclic reference as an
+     * IllegalArgumentException.
+     *
+     * @param object The Java Object to be viewed.
+     * @return The lazy ObjectElement.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    public ObjectElement getLazyObjectElement(Object object) throws IllegalAccessException {
+        ClassStructure.of(object.getClass());
 
-            Element element = getElement(obj);
+        SymbolTable currentSymbols = symbols;
+        LazyParse parse = new LazyParse(currentSymbols == null ? new SymbolTable() : currentSymbols);
+        ObjectElement element = new ObjectElement(new LazyObjectMap(parse, new Origin(object, null)));
+        parse.memo.put(object, element);
+        return element;
+    }
 
-            if (element != null) {
-                map.put(field.getName(), element);
-            }
-        }
-        return new ObjectElement(map);
+    /**
+     * Helper method for parsing the fields of a Java Object.
+     *
+     * @param object The Java Object to be parsed.
+     * @return The parsed ObjectElement.
+     * @throws IllegalArgumentException If the specified object is not an
+     * instance of the class or interface declaring the underlying field.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    private ObjectElement parseObject(Object object) throws IllegalArgumentException, IllegalAccessException {
+        return (ObjectElement) run(new ObjectFrame(object, ClassStructure.of(object.getClass()).getFields()));
     }
 
     /**
-     * Method for parsing a Java Array to an ArrayElement.
+     * Method for parsing a Java Array to an ArrayElement. The members of an
+     * Array of primitives are a view of the Array itself.
      *
      * @param object The Java Array to be parsed.
      * @return The parsed ArrayElement.
@@ -122,11 +373,32 @@ public class JavaObjectParser {
             return null;
         }
 
-        Element[] elements = new Element[Array.getLength(object)];
-        for (int i = 0; i < elements.length; i++) {
-            elements[i] = getElement(Array.get(object, i));
+        if (object.getClass().getComponentType().isPrimitive()) {
+            return new ArrayElement(new PrimitiveArray(object));
         }
-        return new ArrayElement(elements);
+
+        return new ArrayElement(getElements(Array.getLength(object), i -> Array.get(object, i)));
+    }
+
+    /**
+     * Helper method for parsing a String, Number, Character or Boolean. Strings
+     * are shared by the SymbolTable, the other values are held as typed values
+     * without creating their text.
+     *
+     * @param object The value to be parsed.
+     * @return The parsed PrimitiveElement.
+     */
+    private PrimitiveElement getPrimitiveElement(Object object) {
+        if (object instanceof Number) {
+            return new PrimitiveElement((Number) object);
+        }
+        if (object instanceof Character) {
+            return new PrimitiveElement((Character) object);
+        }
+        if (object instanceof Boolean) {
+            return new PrimitiveElement((Boolean) object);
+        }
+        return context.get().symbols.value(object.toString());
     }
 
     /**
@@ -143,11 +415,9 @@ public class JavaObjectParser {
         if (list.isEmpty()) {
             return null;
         }
-        List<Element> elements = new ArrayList<>();
-        for (Object object : list) {
-            elements.add(getElement(object));
-        }
-        return new ListElement(elements);
+
+        Object[] objects = list.toArray();
+        return new ListElement(Arrays.asList(getElements(objects.length, i -> objects[i])));
     }
 
     /**
@@ -165,13 +435,542 @@ public class JavaObjectParser {
             return null;
         }
 
-        Set<Element> elements = new HashSet<>();
-        for (Object object : set) {
-            elements.add(getElement(object));
+        Object[] objects = set.toArray();
+        return new SetElement(Arrays.asList(getElements(objects.length, i -> objects[i])));
+    }
+
+    /**
+     * Helper method for creating the frame for the members of a Java Array or
+     * Collection.
+     *
+     * @param object The Java Array or Collection.
+     * @param size The number of members.
+     * @param members The function returning the member at an index.
+     * @param builder The function building the Element of the parsed members.
+     * @return The frame, or null if there are no members or they are parsed
+     * in parallel.
+     */
+    private Frame getMembersFrame(Object object, int size, IntFunction<Object> members, java.util.function.Function<Element[], Element> builder) {
+        if (size == 0 || (pool != null && size >= parallelThreshold)) {
+            return null;
+        }
+
+        return new MembersFrame(object, size, members, builder);
+    }
+
+    /**
+     * Helper method for parsing the members of a Java Array or Collection.
+     * Large numbers of members are parsed in parallel if enabled.
+     *
+     * @param size The number of members.
+     * @param members The function returning the member at an index.
+     * @return The parsed members in their order.
+     * @throws IllegalArgumentException If the specified object is not an
+     * instance of the class or interface declaring the underlying field.
+     * @throws IllegalAccessException If a Field of the object is enforcing Java
+     * language access control, and the field is inaccessible.
+     */
+    private Element[] getElements(int size, IntFunction<Object> members) throws IllegalArgumentException, IllegalAccessException {
+        Element[] elements = new Element[size];
+
+        ForkJoinPool currentPool = pool;
+        if (currentPool == null || size < parallelThreshold) {
+            for (int i = 0; i < size; i++) {
+                elements[i] = getElement(members.apply(i));
+            }
+            return elements;
+        }
+
+        int batch = Math.max(1, size / (4 * currentPool.getParallelism()));
+        ParseTask task = new ParseTask(context.get(), members, elements, 0, size, batch);
+        try {
+            if (ForkJoinTask.getPool() == currentPool) {
+                task.invoke();
+            } else {
+                currentPool.invoke(task);
+            }
+        } catch (RuntimeException ex) {
+            // The pool may wrap the exception of the task into a new one.
+            for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IllegalAccessException) {
+                    throw (IllegalAccessException) cause;
+                }
+            }
+            // An exception thrown on another thread is rethrown as a copy of
+            // the same class, with the original as its cause.
+            RuntimeException original = ex;
+            while (original.getCause() != null && original.getCause().getClass() == original.getClass()) {
+                original = (RuntimeException) original.getCause();
+            }
+            throw original;
+        }
+
+        return elements;
+    }
+
+    /**
+     * Intern helper class holding the state of an Object, Array or Collection
+     * whose fields or members are being parsed.
+     */
+    private abstract static class Frame {
+
+        static final Object DONE = new Object();
+
+        protected final Object object;
+
+        protected Frame(Object object) {
+            this.object = object;
+        }
+
+        /**
+         * Returns the next Object to be parsed or DONE.
+         */
+        public abstract Object next();
+
+        /**
+         * Takes the Element parsed from the Object returned last by next().
+         */
+        public abstract void deliver(Element element);
+
+        public abstract Element build();
+    }
+
+    /**
+     * Intern helper class for the fields of an Object.
+     */
+    private static class ObjectFrame extends Frame {
+
+        private final ClassStructure.FieldAccessor[] fields;
+        private final Map<String, Element> map = new HashMap<>();
+        private int index;
+        private String name;
+
+        public ObjectFrame(Object object, ClassStructure.FieldAccessor[] fields) {
+            super(object);
+            this.fields = fields;
+        }
+
+        @Override
+        public Object next() {
+            while (index < fields.length) {
+                ClassStructure.FieldAccessor field = fields[index++];
+                Object obj = field.get(object);
+
+                if (obj != null) {
+                    name = field.getName();
+                    return obj;
+                }
+            }
+
+            return DONE;
+        }
+
+        @Override
+        public void deliver(Element element) {
+            if (element != null) {
+                map.put(name, element);
+            }
+        }
+
+        @Override
+        public Element build() {
+            return new ObjectElement(map);
+        }
+    }
+
+    /**
+     * Intern helper class for the members of an Array or Collection.
+     */
+    private static class MembersFrame extends Frame {
+
+        private final IntFunction<Object> members;
+        private final Element[] elements;
+        private final java.util.function.Function<Element[], Element> builder;
+        private int index;
+
+        public MembersFrame(Object object, int size, IntFunction<Object> members, java.util.function.Function<Element[], Element> builder) {
+            super(object);
+            this.members = members;
+            this.elements = new Element[size];
+            this.builder = builder;
+        }
+
+        @Override
+        public Object next() {
+            return index < elements.length ? members.apply(index) : DONE;
+        }
+
+        @Override
+        public void deliver(Element element) {
+            elements[index++] = element;
+        }
+
+        @Override
+        public Element build() {
+            return builder.apply(elements);
+        }
+    }
+
+    /**
+     * Intern helper class for parsing a range of members as a fork join task.
+     */
+    private class ParseTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final ParseContext ctx;
+        private final IntFunction<Object> members;
+        private final Element[] elements;
+        private final int from;
+        private final int to;
+        private final int batch;
+
+        public ParseTask(ParseContext ctx, IntFunction<Object> members, Element[] elements, int from, int to, int batch) {
+            this.ctx = ctx;
+            this.members = members;
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.batch = batch;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > batch) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ParseTask(ctx, members, elements, from, middle, batch),
+                        new ParseTask(ctx, members, elements, middle, to, batch));
+                return;
+            }
+
+            ParseContext previous = context.get();
+            context.set(ctx.branch());
+            try {
+                for (int i = from; i < to; i++) {
+                    elements[i] = getElement(members.apply(i));
+                }
+            } catch (IllegalAccessException ex) {
+                throw new ParseException(ex);
+            } finally {
+                context.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Intern helper exception for passing an IllegalAccessException out of a
+     * fork join task.
+     */
+    private static class ParseException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        public ParseException(IllegalAccessException cause) {
+            super(cause);
         }
-        return new SetElement(elements);
     }
     
+    /**
+     * Intern helper class for the state of a lazy view: the Elements of all
+     * instances converted lazily and the context for the parts which are
+     * parsed directly.
+     */
+    private class LazyParse {
+
+        private final Map<Object, Element> memo = new IdentityHashMap<>();
+        private final ParseContext ctx;
+
+        public LazyParse(SymbolTable symbols) {
+            this.ctx = new ParseContext(false, symbols);
+        }
+
+        /**
+         * Method for converting a field value or member. Objects, Lists and
+         * Arrays become views, everything else is parsed directly with its own
+         * context, so cycles through these parts are found by the parser.
+         *
+         * @param obj The value to be converted.
+         * @param parent The origin of the view holding the value.
+         * @return The Element of the value, or null.
+         */
+        public Element convert(Object obj, Origin parent) {
+            if (obj == null) {
+                return null;
+            }
+
+            Element element = memo.get(obj);
+            if (element != null || memo.containsKey(obj)) {
+                // Only an instance converted before can be its own ancestor,
+                // and only views have descendants.
+                for (Origin origin = element instanceof PrimitiveElement ? null : parent; origin != null; origin = origin.parent) {
+                    if (origin.object == obj) {
+                        throw new IllegalArgumentException("Cyclic reference to an instance of " + obj.getClass().getName() + ".");
+                    }
+                }
+                return element;
+            }
+
+            JavaObjectParserRule rule = getRule(obj.getClass());
+            Origin origin = new Origin(obj, parent);
+            if (rule == objectRule) {
+                element = new ObjectElement(new LazyObjectMap(this, origin));
+            } else if (rule == listRule) {
+                Object[] objects = ((List) obj).toArray();
+                element = objects.length == 0 ? null
+                        : new ListElement(new LazyMembers(this, origin, objects.length, i -> objects[i]));
+            } else if (rule == arrayRule) {
+                int length = Array.getLength(obj);
+                element = length == 0 ? null
+                        : obj.getClass().getComponentType().isPrimitive() ? new ArrayElement(new PrimitiveArray(obj))
+                        : new ArrayElement(new LazyMembers(this, origin, length, i -> Array.get(obj, i)));
+            } else {
+                element = parse(obj, rule);
+            }
+
+            memo.put(obj, element);
+            return element;
+        }
+
+        /**
+         * Method for checking if a field value or member has an Element,
+         * without converting it where the result is known beforehand: Objects
+         * always have one, Sets, Lists and Arrays only if they are not empty.
+         * Other values are converted.
+         *
+         * @param obj The value to be checked.
+         * @param parent The origin of the view holding the value.
+         * @return True if the value is converted to an Element, else false.
+         */
+        public boolean hasElement(Object obj, Origin parent) {
+            if (obj == null) {
+                return false;
+            }
+            if (memo.containsKey(obj)) {
+                return memo.get(obj) != null;
+            }
+
+            JavaObjectParserRule rule = getRule(obj.getClass());
+            if (rule == objectRule) {
+                return true;
+            } else if (rule == setRule) {
+                return !((Set) obj).isEmpty();
+            } else if (rule == listRule) {
+                return !((List) obj).isEmpty();
+            } else if (rule == arrayRule) {
+                return Array.getLength(obj) > 0;
+            }
+            return convert(obj, parent) != null;
+        }
+
+        private Element parse(Object obj, JavaObjectParserRule rule) {
+            ParseContext previous = context.get();
+            context.set(ctx);
+            try {
+                // Rules without an expansion, like the one of the primitives,
+                // need no stack.
+                return rule.getExpansion() == null ? rule.getRule().apply(obj) : getElement(obj);
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            } finally {
+                if (previous == null) {
+                    context.remove();
+                } else {
+                    context.set(previous);
+                }
+            }
+        }
+    }
+
+    /**
+     * Intern helper class linking a viewed instance to the instance whose view
+     * created it.
+     */
+    private static class Origin {
+
+        private final Object object;
+        private final Origin parent;
+
+        public Origin(Object object, Origin parent) {
+            this.object = object;
+            this.parent = parent;
+        }
+    }
+
+    /**
+     * Intern helper class for the fields of an Object. The fields are read on
+     * the first access, but each value is only converted when its field is
+     * accessed. A field without an Element, like a null or an empty List, is
+     * not in the map, so the size and the keys depend on the values: they are
+     * found without converting Objects, Sets, Lists and Arrays.
+     */
+    private static class LazyObjectMap extends AbstractMap<String, Element> {
+
+        private final LazyParse parse;
+        private final Origin origin;
+        private ClassStructure structure;
+        private Object[] values;
+        private Element[] elements;
+        private boolean[] converted;
+        private int size = -1;
+        private Map<String, Element> map;
+
+        public LazyObjectMap(LazyParse parse, Origin origin) {
+            this.parse = parse;
+            this.origin = origin;
+        }
+
+        @Override
+        public int size() {
+            if (size < 0) {
+                read();
+                int count = 0;
+                for (Object value : values) {
+                    if (parse.hasElement(value, origin)) {
+                        count++;
+                    }
+                }
+                size = count;
+            }
+            return size;
+        }
+
+        @Override
+        public Element get(Object key) {
+            read();
+            int index = structure.indexOf(key);
+            return index < 0 ? null : element(index);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            read();
+            int index = structure.indexOf(key);
+            return index >= 0 && (converted[index] ? elements[index] != null : parse.hasElement(values[index], origin));
+        }
+
+        @Override
+        public Set<Map.Entry<String, Element>> entrySet() {
+            if (map == null) {
+                read();
+                ClassStructure.FieldAccessor[] fields = structure.getFields();
+                Map<String, Element> fieldMap = new HashMap<>();
+                for (int i = 0; i < fields.length; i++) {
+                    Element element = element(i);
+                    if (element != null) {
+                        fieldMap.put(fields[i].getName(), element);
+                    }
+                }
+                map = fieldMap;
+            }
+            return map.entrySet();
+        }
+
+        private Element element(int index) {
+            if (!converted[index]) {
+                elements[index] = parse.convert(values[index], origin);
+                converted[index] = true;
+            }
+            return elements[index];
+        }
+
+        /**
+         * Helper method for reading the values of all fields once, without
+         * converting them.
+         */
+        private void read() {
+            if (values == null) {
+                try {
+                    structure = ClassStructure.of(origin.object.getClass());
+                } catch (IllegalAccessException ex) {
+                    throw new IllegalStateException(ex);
+                }
+
+                ClassStructure.FieldAccessor[] fields = structure.getFields();
+                Object[] fieldValues = new Object[fields.length];
+                for (int i = 0; i < fields.length; i++) {
+                    fieldValues[i] = fields[i].get(origin.object);
+                }
+                elements = new Element[fields.length];
+                converted = new boolean[fields.length];
+                values = fieldValues;
+            }
+        }
+    }
+
+    /**
+     * Intern helper class for the members of a List or an Array, which are
+     * converted on access.
+     */
+    private static class LazyMembers extends AbstractList<Element> implements RandomAccess {
+
+        private final LazyParse parse;
+        private final Origin origin;
+        private final IntFunction<Object> members;
+        private final Element[] elements;
+        private final boolean[] converted;
+
+        public LazyMembers(LazyParse parse, Origin origin, int size, IntFunction<Object> members) {
+            this.parse = parse;
+            this.origin = origin;
+            this.members = members;
+            this.elements = new Element[size];
+            this.converted = new boolean[size];
+        }
+
+        @Override
+        public Element get(int index) {
+            if (!converted[index]) {
+                elements[index] = parse.convert(members.apply(index), origin);
+                converted[index] = true;
+            }
+            return elements[index];
+        }
+
+        @Override
+        public int size() {
+            return elements.length;
+        }
+    }
+
+    /**
+     * Intern helper class for the state of a single parse. It maps every
+     * parsed instance to its Element and holds the instances on the current
+     * path for detecting cycles.
+     */
+    private static class ParseContext {
+
+        private final Map<Object, Element> memo;
+        private final Set<Object> path;
+        private final SymbolTable symbols;
+
+        public ParseContext(boolean concurrent, SymbolTable symbols) {
+            this(concurrent ? Collections.synchronizedMap(new IdentityHashMap<>()) : new IdentityHashMap<>(),
+                    Collections.newSetFromMap(new IdentityHashMap<>()), symbols);
+        }
+
+        private ParseContext(Map<Object, Element> memo, Set<Object> path, SymbolTable symbols) {
+            this.memo = memo;
+            this.path = path;
+            this.symbols = symbols;
+        }
+
+        /**
+         * Creates a context for parsing on another thread, which shares the
+         * memo, the SymbolTable and starts with a copy of the current path.
+         */
+        public ParseContext branch() {
+            Set<Object> branchPath = Collections.newSetFromMap(new IdentityHashMap<>());
+            branchPath.addAll(path);
+            return new ParseContext(memo, branchPath, symbols);
+        }
+
+        public void enter(Object obj) {
+            if (!path.add(obj)) {
+                throw new IllegalArgumentException("Cyclic reference to an instance of " + obj.getClass().getName() + ".");
+            }
+        }
+    }
+
     @FunctionalInterface
     public static interface Function<T, R> {
         R apply(T t) throws IllegalArgumentException, IllegalAccessException;
@@ -180,14 +979,22 @@ public class JavaObjectParser {
     /**
      * Intern helper class for defining a datatype for parsing Java Objects.
      */
-    private class JavaObjectParserRule{
-        
+    private class JavaObjectParserRule {
+
+        private final int priority;
         private final Predicate<Class<? extends Object>> check;
         private final Function<Object, Element> rule;
+        private final Function<Object, Frame> expansion;
 
-        public JavaObjectParserRule(Predicate<Class<? extends Object>> check, Function<Object, Element> rule) {
+        public JavaObjectParserRule(int priority, Predicate<Class<? extends Object>> check, Function<Object, Element> rule, Function<Object, Frame> expansion) {
+            this.priority = priority;
             this.check = check;
             this.rule = rule;
+            this.expansion = expansion;
+        }
+
+        public int getPriority() {
+            return priority;
         }
 
         public Predicate<Class<? extends Object>> getCheck() {
@@ -197,5 +1004,13 @@ public class JavaObjectParser {
         public Function<Object, Element> getRule() {
             return rule;
         }
+
+        /**
+         * Returns the function creating a frame for parsing an Object on the
+         * stack of the Parser, which may return null for calling the rule.
+         */
+        public Function<Object, Frame> getExpansion() {
+            return expansion;
+        }
     }
 }
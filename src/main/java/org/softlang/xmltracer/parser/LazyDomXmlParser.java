@@ -0,0 +1,179 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.ParserConfigurationException;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.w3c.dom.Document;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * A variant of the DomXmlParser which keeps the DOM and converts it lazily.
+ * The map of an ObjectElement is built from its DOM node when it is accessed
+ * first and is cached from then on. Members of collections and entries of
+ * objects are ObjectElements whose maps are not built yet, so a comparison
+ * failing early converts only the nodes it has visited. A full comparison
+ * converts the same nodes as the DomXmlParser.
+ *
+ * The resulting Elements are equal to the ones of the DomXmlParser and may be
+ * read by several threads, the conversion is synchronized on the document,
+ * since a DOM is not thread safe even for reading.
+ */
+public class LazyDomXmlParser {
+
+    private final SymbolTable symbols;
+    private final ObjectElement rootObjectElement;
+
+    /**
+     * Constructor for the class LazyDomXmlParser.
+     *
+     * @param file The File to be parsed.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public LazyDomXmlParser(File file) throws ParserConfigurationException, SAXException, IOException {
+        this(file, new SymbolTable());
+    }
+
+    /**
+     * Constructor for the class LazyDomXmlParser with a SymbolTable, which may
+     * be shared with other parses.
+     *
+     * @param file The File to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public LazyDomXmlParser(File file, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this.symbols = symbols;
+
+        DocumentBuilder docBuilder = DomXmlParser.getDocumentBuilder();
+        Document document;
+        try {
+            // The document stays valid after the builder is reset.
+            document = docBuilder.parse(file);
+        } finally {
+            docBuilder.reset();
+        }
+        this.rootObjectElement = new ObjectElement(new NodeMap(document.getDocumentElement(), document));
+    }
+
+    /**
+     * Constructor for the class LazyDomXmlParser.
+     *
+     * @param path The path to the File to be parsed.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public LazyDomXmlParser(String path) throws ParserConfigurationException, SAXException, IOException {
+        this(new File(path));
+    }
+
+    /**
+     * Constructor for the class LazyDomXmlParser with a SymbolTable, which may
+     * be shared with other parses.
+     *
+     * @param path The path to the File to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws ParserConfigurationException If a DocumentBuilder cannot be created which satisfies the configuration requested in the constructor.
+     * @throws SAXException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public LazyDomXmlParser(String path, SymbolTable symbols) throws ParserConfigurationException, SAXException, IOException {
+        this(new File(path), symbols);
+    }
+
+    /**
+     * Method for returning the parsed ObjectElement, whose content is
+     * converted on access.
+     *
+     * @return The parsed ObjectElement.
+     */
+    public ObjectElement getParseResult() {
+        return rootObjectElement;
+    }
+
+    /**
+     * Intern helper class holding the entries of a DOM node, which are built
+     * on the first access.
+     */
+    private class NodeMap extends AbstractMap<String, Element> {
+
+        private final Node node;
+        private final Object lock;
+        private volatile Map<String, Element> map;
+
+        public NodeMap(Node node, Object lock) {
+            this.node = node;
+            this.lock = lock;
+        }
+
+        @Override
+        public int size() {
+            return map().size();
+        }
+
+        @Override
+        public Element get(Object key) {
+            return map().get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return map().containsKey(key);
+        }
+
+        @Override
+        public Set<Map.Entry<String, Element>> entrySet() {
+            return map().entrySet();
+        }
+
+        private Map<String, Element> map() {
+            Map<String, Element> result = map;
+            if (result == null) {
+                synchronized (lock) {
+                    result = map;
+                    if (result == null) {
+                        result = build();
+                        map = result;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Helper method for building the entries of the node like the
+         * DomXmlParser, but with unconverted ObjectElements.
+         *
+         * @return The entries.
+         */
+        private Map<String, Element> build() {
+            Map<String, List<Element>> tempMap = new HashMap<>();
+            for (Node child = node.getFirstChild(); child != null; child = child.getNextSibling()) {
+                if (child.getNodeType() != Node.ELEMENT_NODE) {
+                    continue;
+                }
+
+                Element element = DomXmlParser.hasSubnodes(child)
+                        ? new ObjectElement(new NodeMap(child, lock))
+                        : symbols.value(child.getTextContent());
+                tempMap.computeIfAbsent(symbols.name(child.getNodeName()), k -> new ArrayList<>()).add(element);
+            }
+
+            return XmlElements.group(tempMap);
+        }
+    }
+}
@@ -0,0 +1,740 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import javax.xml.stream.XMLStreamException;
+import org.softlang.xmltracer.data.CompactTree;
+
+/**
+ * A parser for UTF-8 documents which memory-maps the file and scans its bytes
+ * directly into a CompactTree, without a JAXP parser, a Reader or a String
+ * per node. Names are decoded once per distinct name, the text of an
+ * element is only decoded if the element turns out to be a primitive, since
+ * the text of elements with child elements is ignored anyway. The Element
+ * view of the result is identical to the result of the DomXmlParser.
+ *
+ * Only the part of XML used by the tracer is supported: elements, text, CDATA
+ * sections and character references and the predefined entities. Attributes,
+ * comments, processing instructions and the document type declaration are
+ * skipped. Other encodings than UTF-8 and entities declared in a DTD are
+ * rejected. The document is not validated beyond matching start and end tags.
+ */
+public class MappedXmlParser {
+
+    private final CompactTree tree;
+
+    /**
+     * Constructor for the class MappedXmlParser.
+     *
+     * @param file The File to be parsed.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public MappedXmlParser(File file) throws XMLStreamException, IOException {
+        this.tree = new Scanner(new MappedInput(file)).parseDocument();
+    }
+
+    /**
+     * Constructor for the class MappedXmlParser.
+     *
+     * @param path The path to the File to be parsed.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public MappedXmlParser(String path) throws XMLStreamException, IOException {
+        this(new File(path));
+    }
+
+    /**
+     * Method for returning the parsed CompactTree.
+     *
+     * @return The parsed CompactTree.
+     */
+    public CompactTree getParseResult() {
+        return tree;
+    }
+
+    /**
+     * Intern helper class giving access to the bytes of a file. A single
+     * mapping is limited to 2 GB, so larger files are mapped in segments.
+     * Single reads from a mapping are checked and slow, so the bytes are read
+     * through a small window, which is copied in bulk from the mapping.
+     */
+    private static class MappedInput {
+
+        private static final int SEGMENT_BITS = 30;
+        private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+        private static final int WINDOW_SIZE = 1 << 16;
+
+        private final long size;
+        private final MappedByteBuffer[] segments;
+        private final byte[] window = new byte[WINDOW_SIZE];
+        private long windowStart;
+        private long windowEnd;
+        private int nameHash;
+
+        public MappedInput(File file) throws IOException {
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+                size = channel.size();
+                segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+                for (int i = 0; i < segments.length; i++) {
+                    long start = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_MASK + 1, size - start));
+                }
+            }
+        }
+
+        public byte get(long pos) {
+            if (pos < windowStart || pos >= windowEnd) {
+                move(pos);
+            }
+            return window[(int) (pos - windowStart)];
+        }
+
+        /**
+         * Method for finding the next of two bytes in a range.
+         *
+         * @return The position of the byte, or the end of the range.
+         */
+        public long indexOf(byte b1, byte b2, long from, long to) {
+            long pos = from;
+            while (pos < to) {
+                if (pos < windowStart || pos >= windowEnd) {
+                    move(pos);
+                }
+                int end = (int) (Math.min(to, windowEnd) - windowStart);
+                for (int i = (int) (pos - windowStart); i < end; i++) {
+                    byte b = window[i];
+                    if (b == b1 || b == b2) {
+                        return windowStart + i;
+                    }
+                }
+                pos = windowStart + end;
+            }
+            return to;
+        }
+
+        /**
+         * Method for finding the end of a name, which ends at whitespace, at
+         * '>', at '/' or at '='. The hash of the name is kept in nameHash.
+         *
+         * @return The position after the name, or the end of the input.
+         */
+        public long nameEnd(long from) {
+            int hash = 0;
+            long pos = from;
+            while (pos < size) {
+                if (pos < windowStart || pos >= windowEnd) {
+                    move(pos);
+                }
+                int end = (int) (windowEnd - windowStart);
+                for (int i = (int) (pos - windowStart); i < end; i++) {
+                    byte b = window[i];
+                    if (b == '>' || b == '/' || b == '=' || b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                        nameHash = hash;
+                        return windowStart + i;
+                    }
+                    hash = 31 * hash + b;
+                }
+                pos = windowEnd;
+            }
+            nameHash = hash;
+            return size;
+        }
+
+        /**
+         * Method for comparing a range with bytes.
+         *
+         * @return True if the range starting at the position holds the bytes.
+         */
+        public boolean regionEquals(long from, byte[] bytes) {
+            if (from >= windowStart && from + bytes.length <= windowEnd) {
+                int start = (int) (from - windowStart);
+                for (int i = 0; i < bytes.length; i++) {
+                    if (window[start + i] != bytes[i]) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            for (int i = 0; i < bytes.length; i++) {
+                if (get(from + i) != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Method for copying ASCII characters of a range, up to the first
+         * other byte or carriage return.
+         *
+         * @return The position of the first byte not copied.
+         */
+        public long copyAscii(long from, long to, char[] chars, int offset) {
+            long pos = from;
+            while (pos < to) {
+                if (pos < windowStart || pos >= windowEnd) {
+                    move(pos);
+                }
+                int start = (int) (pos - windowStart);
+                int end = (int) (Math.min(to, windowEnd) - windowStart);
+                for (int i = start; i < end; i++) {
+                    byte b = window[i];
+                    if (b < 0 || b == '\r') {
+                        return windowStart + i;
+                    }
+                    chars[offset++] = (char) b;
+                }
+                pos = windowStart + end;
+            }
+            return to;
+        }
+
+        /**
+         * Helper method for moving the window to a position. The window does
+         * not cross segments, since they are multiples of its size.
+         */
+        private void move(long pos) {
+            windowStart = pos & ~(WINDOW_SIZE - 1L);
+            windowEnd = Math.min(windowStart + WINDOW_SIZE, size);
+
+            ByteBuffer segment = segments[(int) (windowStart >>> SEGMENT_BITS)].duplicate();
+            segment.position((int) (windowStart & SEGMENT_MASK));
+            segment.get(window, 0, (int) (windowEnd - windowStart));
+        }
+    }
+
+    /**
+     * Intern helper class scanning the bytes of a document.
+     */
+    private static class Scanner {
+
+        private final MappedInput input;
+        private final long size;
+        private long pos;
+
+        private final CompactTree.Builder builder = new CompactTree.Builder();
+        private char[] chars = new char[256];
+        private int length;
+
+        private byte[][] nameBytes = new byte[64][];
+        private String[] nameStrings = new String[64];
+        private int nameCount;
+
+        public Scanner(MappedInput input) {
+            this.input = input;
+            this.size = input.size;
+        }
+
+        /**
+         * Method for parsing the whole document. Whether an element becomes an
+         * object or a primitive node is only known at its first child element
+         * or its end, so the node of an element is started lazily.
+         *
+         * @return The parsed CompactTree.
+         * @throws XMLStreamException If any parse errors occur.
+         */
+        public CompactTree parseDocument() throws XMLStreamException {
+            skipProlog();
+
+            Deque<Frame> stack = new ArrayDeque<>();
+            String rootName = readName();
+            if (skipAttributes()) {
+                return builder.startObject(null).end().build();
+            }
+            stack.push(new Frame(rootName, pos));
+
+            while (true) {
+                long start = indexOf((byte) '<', pos);
+                pos = start + 1;
+                byte next = peek(0);
+
+                if (next == '/') {
+                    pos++;
+                    String name = readName();
+                    skipWhitespace();
+                    expect('>');
+
+                    Frame frame = stack.pop();
+                    if (!name.equals(frame.name)) {
+                        throw error("End tag </" + name + "> does not match <" + frame.name + ">", start);
+                    }
+
+                    if (frame.started) {
+                        builder.end();
+                    } else if (stack.isEmpty()) {
+                        builder.startObject(null).end();
+                    } else {
+                        decodeText(frame.textStart, start);
+                        builder.value(frame.name, chars, 0, length);
+                    }
+
+                    if (stack.isEmpty()) {
+                        return builder.build();
+                    }
+                } else if (next == '!') {
+                    if (startsWith("!--")) {
+                        pos = indexOf("-->", pos) + 3;
+                    } else if (startsWith("![CDATA[")) {
+                        pos = indexOf("]]>", pos) + 3;
+                    } else {
+                        throw error("Unsupported markup declaration", start);
+                    }
+                } else if (next == '?') {
+                    pos = indexOf("?>", pos) + 2;
+                } else {
+                    Frame parent = stack.peek();
+                    if (!parent.started) {
+                        builder.startObject(stack.size() == 1 ? null : parent.name);
+                        parent.started = true;
+                    }
+
+                    String name = readName();
+                    if (skipAttributes()) {
+                        builder.value(name, chars, 0, 0);
+                    } else {
+                        stack.push(new Frame(name, pos));
+                    }
+                }
+            }
+        }
+
+        /**
+         * Helper method for skipping everything up to the root element.
+         *
+         * @throws XMLStreamException If no root element is found.
+         */
+        private void skipProlog() throws XMLStreamException {
+            if (size >= 3 && input.get(0) == (byte) 0xEF && input.get(1) == (byte) 0xBB && input.get(2) == (byte) 0xBF) {
+                pos = 3;
+            } else if (size >= 2 && (input.get(0) == (byte) 0xFE || input.get(0) == (byte) 0xFF)) {
+                throw error("Only UTF-8 is supported", 0);
+            }
+
+            while (true) {
+                skipWhitespace();
+                long start = pos;
+                expect('<');
+                if (startsWith("?xml")) {
+                    long end = indexOf("?>", pos);
+                    checkEncoding(start, end);
+                    pos = end + 2;
+                } else if (peek(0) == '?') {
+                    pos = indexOf("?>", pos) + 2;
+                } else if (startsWith("!--")) {
+                    pos = indexOf("-->", pos) + 3;
+                } else if (startsWith("!DOCTYPE")) {
+                    skipDoctype();
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void checkEncoding(long start, long end) throws XMLStreamException {
+            StringBuilder declaration = new StringBuilder();
+            for (long i = start; i < end; i++) {
+                declaration.append((char) (input.get(i) & 0xFF));
+            }
+
+            int index = declaration.indexOf("encoding");
+            if (index >= 0) {
+                String rest = declaration.substring(index).toUpperCase();
+                if (!rest.matches("ENCODING\\s*=\\s*['\"](UTF-8|UTF8|US-ASCII|ASCII)['\"][\\s\\S]*")) {
+                    throw error("Only UTF-8 is supported", start);
+                }
+            }
+        }
+
+        private void skipDoctype() throws XMLStreamException {
+            int brackets = 0;
+            while (true) {
+                byte b = get(pos++);
+                if (b == '[') {
+                    brackets++;
+                } else if (b == ']') {
+                    brackets--;
+                } else if (b == '"' || b == '\'') {
+                    pos = indexOf(b, pos) + 1;
+                } else if (b == '>' && brackets <= 0) {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Helper method for skipping the attributes of a start tag.
+         *
+         * @return True if the element is empty, like &lt;name/&gt;.
+         * @throws XMLStreamException If the tag does not end.
+         */
+        private boolean skipAttributes() throws XMLStreamException {
+            while (true) {
+                byte b = get(pos++);
+                if (b == '>') {
+                    return false;
+                } else if (b == '/' && peek(0) == '>') {
+                    pos++;
+                    return true;
+                } else if (b == '"' || b == '\'') {
+                    pos = indexOf(b, pos) + 1;
+                }
+            }
+        }
+
+        /**
+         * Helper method for reading a name. The bytes of the name are only
+         * decoded the first time the name is seen.
+         *
+         * @return The name.
+         * @throws XMLStreamException If there is no name.
+         */
+        private String readName() throws XMLStreamException {
+            long start = pos;
+            pos = input.nameEnd(start);
+            if (pos == size) {
+                throw error("Unexpected end of document", size);
+            }
+
+            int nameLength = (int) (pos - start);
+            if (nameLength == 0) {
+                throw error("Name expected", start);
+            }
+
+            int mask = nameBytes.length - 1;
+            int slot = input.nameHash & mask;
+            while (nameBytes[slot] != null) {
+                if (nameBytes[slot].length == nameLength && input.regionEquals(start, nameBytes[slot])) {
+                    return nameStrings[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            byte[] bytes = new byte[nameLength];
+            for (int i = 0; i < nameLength; i++) {
+                bytes[i] = input.get(start + i);
+            }
+            String name = new String(bytes, StandardCharsets.UTF_8);
+            nameBytes[slot] = bytes;
+            nameStrings[slot] = name;
+            if (++nameCount * 2 > nameBytes.length) {
+                growNames();
+            }
+            return name;
+        }
+
+        private void growNames() {
+            byte[][] oldBytes = nameBytes;
+            String[] oldStrings = nameStrings;
+            nameBytes = new byte[oldBytes.length * 2][];
+            nameStrings = new String[oldBytes.length * 2];
+
+            int mask = nameBytes.length - 1;
+            for (int i = 0; i < oldBytes.length; i++) {
+                if (oldBytes[i] == null) {
+                    continue;
+                }
+                int hash = 0;
+                for (byte b : oldBytes[i]) {
+                    hash = 31 * hash + b;
+                }
+                int slot = hash & mask;
+                while (nameBytes[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                nameBytes[slot] = oldBytes[i];
+                nameStrings[slot] = oldStrings[i];
+            }
+        }
+
+        /**
+         * Helper method for decoding the text content of a primitive element
+         * into the character buffer. Comments and processing instructions are
+         * skipped, CDATA sections are taken as they are, references are
+         * resolved and line ends are normalized.
+         *
+         * @param start The first byte of the content.
+         * @param end The end of the content.
+         * @throws XMLStreamException If the content is malformed.
+         */
+        private void decodeText(long start, long end) throws XMLStreamException {
+            long saved = pos;
+            length = 0;
+            long i = start;
+            while (i < end) {
+                byte b = input.get(i);
+
+                if (b == '<') {
+                    pos = i + 1;
+                    if (startsWith("!--")) {
+                        i = indexOf("-->", pos) + 3;
+                    } else if (startsWith("![CDATA[")) {
+                        long cdataEnd = indexOf("]]>", pos);
+                        decodeBytes(pos + 8, cdataEnd);
+                        i = cdataEnd + 3;
+                    } else {
+                        i = indexOf("?>", pos) + 2;
+                    }
+                } else if (b == '&') {
+                    i = decodeReference(i);
+                } else {
+                    long next = input.indexOf((byte) '<', (byte) '&', i + 1, end);
+                    decodeBytes(i, next);
+                    i = next;
+                }
+            }
+            pos = saved;
+        }
+
+        /**
+         * Helper method for decoding a range of UTF-8 bytes into the character
+         * buffer.
+         */
+        private void decodeBytes(long start, long end) throws XMLStreamException {
+            long i = start;
+            while (i < end) {
+                ensureChars(end - i);
+                long ascii = input.copyAscii(i, end, chars, length);
+                length += (int) (ascii - i);
+                i = ascii;
+                if (i == end) {
+                    break;
+                }
+
+                int b = input.get(i) & 0xFF;
+                if (b < 0x80) {
+                    if (b == '\r') {
+                        append('\n');
+                        if (i + 1 < end && input.get(i + 1) == '\n') {
+                            i++;
+                        }
+                    } else {
+                        append((char) b);
+                    }
+                    i++;
+                } else if (b >= 0xC2 && b < 0xE0 && i + 1 < end) {
+                    append((char) (((b & 0x1F) << 6) | continuation(i + 1)));
+                    i += 2;
+                } else if (b >= 0xE0 && b < 0xF0 && i + 2 < end) {
+                    append((char) (((b & 0x0F) << 12) | (continuation(i + 1) << 6) | continuation(i + 2)));
+                    i += 3;
+                } else if (b >= 0xF0 && b < 0xF5 && i + 3 < end) {
+                    appendCodePoint(((b & 0x07) << 18) | (continuation(i + 1) << 12)
+                            | (continuation(i + 2) << 6) | continuation(i + 3));
+                    i += 4;
+                } else {
+                    throw error("Invalid UTF-8", i);
+                }
+            }
+        }
+
+        private int continuation(long i) throws XMLStreamException {
+            int b = input.get(i) & 0xFF;
+            if ((b & 0xC0) != 0x80) {
+                throw error("Invalid UTF-8", i);
+            }
+            return b & 0x3F;
+        }
+
+        /**
+         * Helper method for decoding a character reference or a predefined
+         * entity.
+         *
+         * @param start The position of the ampersand.
+         * @return The position after the reference.
+         * @throws XMLStreamException If the reference is not supported.
+         */
+        private long decodeReference(long start) throws XMLStreamException {
+            long end = indexOf((byte) ';', start);
+            if (end - start > 32) {
+                throw error("Invalid reference", start);
+            }
+            StringBuilder reference = new StringBuilder();
+            for (long i = start + 1; i < end; i++) {
+                reference.append((char) (input.get(i) & 0xFF));
+            }
+
+            String name = reference.toString();
+            switch (name) {
+                case "lt":
+                    append('<');
+                    break;
+                case "gt":
+                    append('>');
+                    break;
+                case "amp":
+                    append('&');
+                    break;
+                case "quot":
+                    append('"');
+                    break;
+                case "apos":
+                    append('\'');
+                    break;
+                default:
+                    if (!name.startsWith("#")) {
+                        throw error("Unsupported entity &" + name + ";", start);
+                    }
+                    int codePoint = parseCodePoint(name);
+                    if (!isXmlChar(codePoint)) {
+                        throw error("Invalid character reference &" + name + ";", start);
+                    }
+                    appendCodePoint(codePoint);
+            }
+            return end + 1;
+        }
+
+        /**
+         * Helper method for the code point of a character reference, which
+         * has only decimal digits or, after an x, hexadecimal digits.
+         *
+         * @param name The reference without the ampersand and the semicolon.
+         * @return The code point, or -1 if the reference is invalid.
+         */
+        private int parseCodePoint(String name) {
+            boolean hex = name.startsWith("#x");
+            int radix = hex ? 16 : 10;
+            String digits = name.substring(hex ? 2 : 1);
+            if (digits.isEmpty()) {
+                return -1;
+            }
+
+            long codePoint = 0;
+            for (int i = 0; i < digits.length(); i++) {
+                int digit = Character.digit(digits.charAt(i), radix);
+                if (digit < 0) {
+                    return -1;
+                }
+                codePoint = codePoint * radix + digit;
+                if (codePoint > Character.MAX_CODE_POINT) {
+                    return -1;
+                }
+            }
+            return (int) codePoint;
+        }
+
+        /**
+         * Helper method to check the Char production of XML 1.0, which a
+         * character reference has to match.
+         */
+        private boolean isXmlChar(int codePoint) {
+            return codePoint == 0x9 || codePoint == 0xA || codePoint == 0xD
+                    || codePoint >= 0x20 && codePoint <= 0xD7FF
+                    || codePoint >= 0xE000 && codePoint <= 0xFFFD
+                    || codePoint >= 0x10000 && codePoint <= 0x10FFFF;
+        }
+
+        private void ensureChars(long count) {
+            if (length + count > chars.length) {
+                chars = Arrays.copyOf(chars, (int) Math.max(chars.length * 2L, length + count));
+            }
+        }
+
+        private void append(char c) {
+            if (length == chars.length) {
+                chars = Arrays.copyOf(chars, length * 2);
+            }
+            chars[length++] = c;
+        }
+
+        private void appendCodePoint(int codePoint) {
+            if (Character.isBmpCodePoint(codePoint)) {
+                append((char) codePoint);
+            } else {
+                append(Character.highSurrogate(codePoint));
+                append(Character.lowSurrogate(codePoint));
+            }
+        }
+
+        private void skipWhitespace() throws XMLStreamException {
+            while (isWhitespace(get(pos))) {
+                pos++;
+            }
+        }
+
+        private void expect(char c) throws XMLStreamException {
+            if (get(pos) != c) {
+                throw error("'" + c + "' expected", pos);
+            }
+            pos++;
+        }
+
+        private boolean startsWith(String s) {
+            if (pos + s.length() > size) {
+                return false;
+            }
+            for (int i = 0; i < s.length(); i++) {
+                if (input.get(pos + i) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private byte peek(int offset) throws XMLStreamException {
+            return get(pos + offset);
+        }
+
+        private byte get(long i) throws XMLStreamException {
+            if (i >= size) {
+                throw error("Unexpected end of document", size);
+            }
+            return input.get(i);
+        }
+
+        private long indexOf(byte b, long from) throws XMLStreamException {
+            long i = input.indexOf(b, b, from, size);
+            if (i == size) {
+                throw error("Unexpected end of document", size);
+            }
+            return i;
+        }
+
+        private long indexOf(String s, long from) throws XMLStreamException {
+            byte first = (byte) s.charAt(0);
+            for (long i = indexOf(first, from); ; i = indexOf(first, i + 1)) {
+                long saved = pos;
+                pos = i;
+                boolean found = startsWith(s);
+                pos = saved;
+                if (found) {
+                    return i;
+                }
+            }
+        }
+
+        private static boolean isWhitespace(byte b) {
+            return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+        }
+
+        private static XMLStreamException error(String message, long offset) {
+            return new XMLStreamException(message + " at byte " + offset + ".");
+        }
+    }
+
+    /**
+     * Intern helper class holding the state of an element whose end tag has
+     * not been read yet.
+     */
+    private static class Frame {
+
+        private final String name;
+        private final long textStart;
+        private boolean started;
+
+        public Frame(String name, long textStart) {
+            this.name = name;
+            this.textStart = textStart;
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import org.softlang.xmltracer.data.CollectionElement;
+import org.softlang.xmltracer.data.CompactTree;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveElement;
+import org.softlang.xmltracer.data.TreeSnapshot;
+
+/**
+ * A cache of parse results for XML files which are compared many times, like
+ * the expected files of tests. The results are kept in memory up to a budget
+ * of their estimated heap size, evicting the least recently used ones, and can
+ * also be stored as snapshots in a directory, so later runs do not parse the
+ * files again.
+ *
+ * An entry is found by the path of its file and is only used while the size
+ * and the modification time of the file are unchanged and the modification
+ * time lies clearly before the file was read, as a file can change within the
+ * resolution of its modification time. Otherwise the file is read again and
+ * the entry is kept if the SHA-256 hash of its content is unchanged. Snapshots
+ * are stored by this hash, so they never need to be invalidated.
+ *
+ * The returned ObjectElements are shared by all callers and must not be
+ * changed. The cache may be used by several threads.
+ */
+public class ParseCache {
+
+    /**
+     * The parser of a ParseCache, which creates the result of the content of a
+     * file.
+     */
+    @FunctionalInterface
+    public interface ContentParser {
+
+        ObjectElement parse(byte[] content) throws Exception;
+    }
+
+    /**
+     * The time in milliseconds a file has to be older than its last read, so
+     * an unchanged size and modification time can be trusted.
+     */
+    private static final long MODIFICATION_RESOLUTION = 2000;
+
+    private final long memoryBudget;
+    private final String parserId;
+    private final ContentParser parser;
+    private File diskDirectory;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a ParseCache for the results of the DomXmlParser.
+     *
+     * @param memoryBudget The estimated heap size in bytes the results in
+     * memory may take.
+     */
+    public ParseCache(long memoryBudget) {
+        this(memoryBudget, "dom", content -> new DomXmlParser(content).getParseResult());
+    }
+
+    /**
+     * Creates a ParseCache for the results of the given parser.
+     *
+     * @param memoryBudget The estimated heap size in bytes the results in
+     * memory may take.
+     * @param parserId The name of the parser, which is part of the names of
+     * the snapshots, so the results of different parsers are not mixed up.
+     * @param parser The parser.
+     */
+    public ParseCache(long memoryBudget, String parserId, ContentParser parser) {
+        if (memoryBudget < 0) {
+            throw new IllegalArgumentException("The memory budget must not be negative.");
+        }
+        if (!parserId.matches("[A-Za-z0-9_.-]+")) {
+            throw new IllegalArgumentException("The parser id must be usable in file names: " + parserId);
+        }
+        this.memoryBudget = memoryBudget;
+        this.parserId = parserId;
+        this.parser = parser;
+    }
+
+    /**
+     * Method for storing the results as snapshots in the given directory,
+     * which is created if needed. The directory may be shared by several
+     * caches and runs.
+     *
+     * @param directory The directory, or null to store no snapshots.
+     * @throws IOException If the directory cannot be created.
+     */
+    public void setDiskDirectory(File directory) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        this.diskDirectory = directory;
+    }
+
+    /**
+     * Method for returning the parse result of a file, from memory, from a
+     * snapshot or by parsing it.
+     *
+     * @param file The XML file.
+     * @return The shared parse result, which must not be changed.
+     * @throws IOException If any IO errors occur, or the parser fails, which
+     * is given as the cause.
+     */
+    public ObjectElement get(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        long size = file.length();
+        long modified = file.lastModified();
+        if (modified == 0) {
+            throw new IOException("Cannot read " + file + ".");
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null && entry.size == size && entry.modified == modified
+                && modified + MODIFICATION_RESOLUTION < entry.readAt) {
+            memoryHits.increment();
+            return entry.element;
+        }
+
+        // The time is taken before reading, so a change while reading is
+        // detected by the next call.
+        long readAt = System.currentTimeMillis();
+        byte[] content = Files.readAllBytes(file.toPath());
+        String hash = hash(content);
+
+        if (entry != null) {
+            if (entry.hash.equals(hash)) {
+                memoryHits.increment();
+                put(key, new Entry(entry.element, hash, content.length, modified, readAt, entry.bytes));
+                return entry.element;
+            }
+            invalidations.increment();
+            remove(key, entry);
+        }
+
+        ObjectElement element = readSnapshot(hash);
+        if (element != null) {
+            diskHits.increment();
+        } else {
+            misses.increment();
+            try {
+                element = parser.parse(content);
+            } catch (IOException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new IOException("Cannot parse " + file + ".", ex);
+            }
+            writeSnapshot(hash, element);
+        }
+
+        put(key, new Entry(element, hash, content.length, modified, readAt, estimateSize(element)));
+        return element;
+    }
+
+    /**
+     * Method for removing the entry of a file from memory. Its snapshot is
+     * kept, as it belongs to the content and not to the file.
+     *
+     * @param file The file.
+     * @throws IOException If the path of the file cannot be resolved.
+     */
+    public void invalidate(File file) throws IOException {
+        String key = file.getCanonicalPath();
+        synchronized (entries) {
+            Entry entry = entries.remove(key);
+            if (entry != null) {
+                memoryBytes -= entry.bytes;
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Method for removing all entries from memory.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            memoryBytes = 0;
+        }
+    }
+
+    public CacheStatistics getStatistics() {
+        synchronized (entries) {
+            return new CacheStatistics(memoryHits.sum(), diskHits.sum(), misses.sum(),
+                    invalidations.sum(), evictions.sum(), entries.size(), memoryBytes);
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        synchronized (entries) {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                memoryBytes -= old.bytes;
+            }
+            if (entry.bytes > memoryBudget) {
+                evictions.increment();
+                return;
+            }
+
+            entries.put(key, entry);
+            memoryBytes += entry.bytes;
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (memoryBytes > memoryBudget) {
+                memoryBytes -= iterator.next().bytes;
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        synchronized (entries) {
+            if (entries.remove(key, entry)) {
+                memoryBytes -= entry.bytes;
+            }
+        }
+    }
+
+    private File snapshotFile(File directory, String hash) {
+        return new File(directory, parserId + "-" + hash + ".snapshot");
+    }
+
+    /**
+     * Helper method for reading the snapshot of a content. A broken snapshot
+     * is deleted, so the content is parsed again.
+     */
+    private ObjectElement readSnapshot(String hash) {
+        File directory = diskDirectory;
+        if (directory == null) {
+            return null;
+        }
+        File snapshot = snapshotFile(directory, hash);
+        if (!snapshot.isFile()) {
+            return null;
+        }
+        try {
+            return TreeSnapshot.read(snapshot).toElement();
+        } catch (IOException ex) {
+            snapshot.delete();
+            return null;
+        }
+    }
+
+    /**
+     * Helper method for writing the snapshot of a content. It is written to a
+     * temporary file first and then moved, so readers never see a partial
+     * snapshot. Results which cannot be stored as snapshots, or whose
+     * snapshot cannot be written, like on a full disk, are only kept in
+     * memory.
+     */
+    private void writeSnapshot(String hash, ObjectElement element) {
+        File directory = diskDirectory;
+        if (directory == null) {
+            return;
+        }
+        CompactTree tree;
+        try {
+            tree = CompactTree.of(element);
+        } catch (IllegalArgumentException ex) {
+            return;
+        }
+
+        File snapshot = snapshotFile(directory, hash);
+        try {
+            File temp = File.createTempFile(parserId + "-", ".tmp", directory);
+            try {
+                TreeSnapshot.write(tree, temp);
+                try {
+                    Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException ex) {
+                    Files.move(temp.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                temp.delete();
+            }
+        } catch (IOException ex) {
+            // The snapshot is only a shortcut for later runs.
+        }
+    }
+
+    private static String hash(byte[] content) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // Every Java platform has to support SHA-256.
+            throw new IllegalStateException(ex);
+        }
+        StringBuilder builder = new StringBuilder(64);
+        for (byte b : digest.digest(content)) {
+            builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Helper method for estimating the heap size of a tree of Elements on a
+     * 64 bit JVM with compressed references. Shared Elements, like the
+     * strings of a SymbolTable, are counted once.
+     */
+    static long estimateSize(ObjectElement root) {
+        Set<Element> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Element> stack = new ArrayDeque<>();
+        stack.push(root);
+        long bytes = 0;
+
+        while (!stack.isEmpty()) {
+            Element element = stack.pop();
+            if (!seen.add(element)) {
+                continue;
+            }
+            if (element instanceof ObjectElement) {
+                Map<String, Element> map = ((ObjectElement) element).getElementMap();
+                // The element, the HashMap, its table and its nodes.
+                bytes += 16 + 48 + 16 + 4 * Integer.highestOneBit(map.size() * 2 + 1) + 32 * map.size();
+                stack.addAll(map.values());
+            } else if (element instanceof CollectionElement) {
+                CollectionElement collection = (CollectionElement) element;
+                bytes += 64 + 36L * collection.getCollection().size();
+                stack.addAll(collection.getCollection());
+            } else if (element instanceof PrimitiveElement) {
+                // The element, the String and its array.
+                bytes += 32 + 24 + 16 + ((PrimitiveElement) element).getValue().length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Intern helper class holding a parse result with the state of its file.
+     */
+    private static class Entry {
+
+        private final ObjectElement element;
+        private final String hash;
+        private final long size;
+        private final long modified;
+        private final long readAt;
+        private final long bytes;
+
+        public Entry(ObjectElement element, String hash, long size, long modified, long readAt, long bytes) {
+            this.element = element;
+            this.hash = hash;
+            this.size = size;
+            this.modified = modified;
+            this.readAt = readAt;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+
+/**
+ * A streaming alternative to the DomXmlParser. The document is read in a
+ * single pass over an XMLStreamReader, so only the resulting ObjectElement
+ * tree is held in memory. The result is identical to the one of the
+ * DomXmlParser.
+ */
+public class StaxXmlParser {
+
+    private final SymbolTable symbols;
+    private final ObjectElement rootObjectElement;
+
+    /**
+     * Constructor for the class StaxXmlParser.
+     *
+     * @param file The File to be parsed.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public StaxXmlParser(File file) throws XMLStreamException, IOException {
+        this(file, new SymbolTable());
+    }
+
+    /**
+     * Constructor for the class StaxXmlParser with a SymbolTable, which may be
+     * shared with other parses.
+     *
+     * @param file The File to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public StaxXmlParser(File file, SymbolTable symbols) throws XMLStreamException, IOException {
+        this.symbols = symbols;
+        try (InputStream inputStream = new FileInputStream(file)) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(inputStream);
+            try {
+                this.rootObjectElement = parseDocument(reader);
+            } finally {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Constructor for the class StaxXmlParser.
+     *
+     * @param path The path to the File to be parsed.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public StaxXmlParser(String path) throws XMLStreamException, IOException {
+        this(new File(path));
+    }
+
+    /**
+     * Constructor for the class StaxXmlParser with a SymbolTable, which may be
+     * shared with other parses.
+     *
+     * @param path The path to the File to be parsed.
+     * @param symbols The SymbolTable for element names and values.
+     * @throws XMLStreamException If any parse errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public StaxXmlParser(String path, SymbolTable symbols) throws XMLStreamException, IOException {
+        this(new File(path), symbols);
+    }
+
+    /**
+     * Method for returning the parsed ObjectElement.
+     *
+     * @return The parsed ObjectElement.
+     */
+    public ObjectElement getParseResult() {
+        return rootObjectElement;
+    }
+
+    /**
+     * Helper method for parsing a whole document. Like in the DomXmlParser the
+     * root element is always parsed to an ObjectElement.
+     *
+     * @param reader The reader positioned before the root element.
+     * @return The parsed ObjectElement.
+     * @throws XMLStreamException If any parse errors occur.
+     */
+    private ObjectElement parseDocument(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.next() != XMLStreamConstants.START_ELEMENT) {
+            // skip prolog
+        }
+
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(symbols.name(XmlElements.getName(reader))));
+
+        while (true) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT:
+                    stack.push(new Frame(symbols.name(XmlElements.getName(reader))));
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    stack.peek().appendText(reader);
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    Frame frame = stack.pop();
+                    if (stack.isEmpty()) {
+                        return frame.toObject();
+                    }
+                    stack.peek().addChild(frame.name, frame.toElement(symbols));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Intern helper class holding the state of an element whose end tag has
+     * not been read yet.
+     */
+    private static class Frame {
+
+        private final String name;
+        private Map<String, List<Element>> children;
+        private StringBuilder text;
+
+        public Frame(String name) {
+            this.name = name;
+        }
+
+        public void appendText(XMLStreamReader reader) {
+            if (children != null) {
+                return;
+            }
+            if (text == null) {
+                text = new StringBuilder();
+            }
+            text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+        }
+
+        public void addChild(String childName, Element child) {
+            if (children == null) {
+                children = new HashMap<>();
+                text = null;
+            }
+            children.computeIfAbsent(childName, k -> new ArrayList<>()).add(child);
+        }
+
+        public Element toElement(SymbolTable symbols) {
+            if (children != null) {
+                return toObject();
+            }
+            return symbols.value(text == null ? "" : text.toString());
+        }
+
+        public ObjectElement toObject() {
+            if (children == null) {
+                return new ObjectElement(new HashMap<>());
+            }
+            return XmlElements.toObject(children);
+        }
+    }
+}
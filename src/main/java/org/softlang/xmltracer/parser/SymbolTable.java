@@ -0,0 +1,127 @@
+package org.softlang.xmltracer.parser;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.softlang.xmltracer.data.PrimitiveElement;
+
+/**
+ * A table of the element names and primitive values seen by the parsers, so
+ * repeated names share one String and repeated values share one
+ * PrimitiveElement. By default every parse uses its own table, a table given
+ * to a parser is shared by all of its parses. The table is bounded: once a
+ * bound is reached, new names or values are not added anymore, while known
+ * ones are still shared. Values longer than the maximal value length are never
+ * added, since long texts rarely repeat. A table with zero bounds disables the
+ * interning. The table is thread safe.
+ */
+public class SymbolTable {
+
+    public static final int DEFAULT_MAX_NAMES = 4096;
+    public static final int DEFAULT_MAX_VALUES = 65536;
+    public static final int DEFAULT_MAX_VALUE_LENGTH = 64;
+
+    private final int maxNames;
+    private final int maxValues;
+    private final int maxValueLength;
+
+    private final Map<String, String> names = new ConcurrentHashMap<>();
+    private final Map<String, PrimitiveElement> values = new ConcurrentHashMap<>();
+    private final AtomicInteger nameCount = new AtomicInteger();
+    private final AtomicInteger valueCount = new AtomicInteger();
+
+    /**
+     * Constructor for the class SymbolTable with the default bounds.
+     */
+    public SymbolTable() {
+        this(DEFAULT_MAX_NAMES, DEFAULT_MAX_VALUES, DEFAULT_MAX_VALUE_LENGTH);
+    }
+
+    /**
+     * Constructor for the class SymbolTable.
+     *
+     * @param maxNames The maximal number of names.
+     * @param maxValues The maximal number of values.
+     * @param maxValueLength The maximal length of a value.
+     */
+    public SymbolTable(int maxNames, int maxValues, int maxValueLength) {
+        if (maxNames < 0 || maxValues < 0 || maxValueLength < 0) {
+            throw new IllegalArgumentException("The bounds must not be negative.");
+        }
+
+        this.maxNames = maxNames;
+        this.maxValues = maxValues;
+        this.maxValueLength = maxValueLength;
+    }
+
+    /**
+     * Method for interning an element name.
+     *
+     * @param name The name.
+     * @return The shared String equal to the name, or the name itself.
+     */
+    public String name(String name) {
+        String shared = names.get(name);
+        if (shared != null) {
+            return shared;
+        }
+
+        if (nameCount.get() >= maxNames) {
+            return name;
+        }
+
+        shared = names.putIfAbsent(name, name);
+        if (shared != null) {
+            return shared;
+        }
+        nameCount.incrementAndGet();
+        return name;
+    }
+
+    /**
+     * Method for getting the PrimitiveElement of a value.
+     *
+     * @param value The value.
+     * @return The shared PrimitiveElement of the value, or a new one.
+     */
+    public PrimitiveElement value(String value) {
+        if (value.length() > maxValueLength) {
+            return new PrimitiveElement(value);
+        }
+
+        PrimitiveElement shared = values.get(value);
+        if (shared != null) {
+            return shared;
+        }
+
+        PrimitiveElement element = new PrimitiveElement(value);
+        if (valueCount.get() >= maxValues) {
+            return element;
+        }
+
+        shared = values.putIfAbsent(value, element);
+        if (shared != null) {
+            return shared;
+        }
+        valueCount.incrementAndGet();
+        return element;
+    }
+
+    /**
+     * Method for returning the number of interned names.
+     *
+     * @return The number of names.
+     */
+    public int getNameCount() {
+        return nameCount.get();
+    }
+
+    /**
+     * Method for returning the number of interned values.
+     *
+     * @return The number of values.
+     */
+    public int getValueCount() {
+        return valueCount.get();
+    }
+}
@@ -0,0 +1,67 @@
+package org.softlang.xmltracer.parser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamReader;
+import org.softlang.xmltracer.data.CollectionElement;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+
+/**
+ * Helper methods shared by the XML parsers and the streaming comparators, so
+ * all of them name and group the elements of a document the same way.
+ */
+public final class XmlElements {
+
+    private XmlElements() {
+    }
+
+    /**
+     * Method for getting the qualified name of the current element the way
+     * DOM reports it with getNodeName().
+     *
+     * @param reader The reader positioned on a start element.
+     * @return The qualified name of the element.
+     */
+    public static String getName(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        if (prefix == null || prefix.isEmpty()) {
+            return reader.getLocalName();
+        }
+        return prefix + ":" + reader.getLocalName();
+    }
+
+    /**
+     * Method for building the entries of an object from its children. A name
+     * with repeated children becomes a CollectionElement, a name with a single
+     * child holds the child itself.
+     *
+     * @param children The children grouped by their name.
+     * @return The entries of the object.
+     */
+    public static Map<String, Element> group(Map<String, List<Element>> children) {
+        Map<String, Element> objectMap = new HashMap<>();
+
+        for (Map.Entry<String, List<Element>> entry : children.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                objectMap.put(entry.getKey(), new CollectionElement(entry.getValue()));
+            } else {
+                objectMap.put(entry.getKey(), entry.getValue().get(0));
+            }
+        }
+
+        return objectMap;
+    }
+
+    /**
+     * Method for building an ObjectElement from its children, see
+     * {@link #group(Map)}.
+     *
+     * @param children The children grouped by their name.
+     * @return The ObjectElement.
+     */
+    public static ObjectElement toObject(Map<String, List<Element>> children) {
+        return new ObjectElement(group(children));
+    }
+}
@@ -0,0 +1,104 @@
+package org.softlang.xmltracer.batch;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+
+public class BatchTracerTest {
+
+    @Test
+    public void testTrace() {
+        List<TracePair> pairs = new ArrayList<>();
+        try {
+            for (int seed = 0; seed < 8; seed++) {
+                CompanyGenerator generator = new CompanyGenerator(seed);
+                generator.setNodes(500);
+                generator.setMutationRate(0.5);
+                File file = File.createTempFile("batch", ".xml");
+                file.deleteOnExit();
+                generator.writeXml(file, false);
+
+                boolean mutated = seed % 2 == 1;
+                pairs.add(new TracePair("pair" + seed, () -> generator.createCompany(mutated), file));
+            }
+        } catch (XMLStreamException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        List<TraceResult> results = new ArrayList<>();
+        BatchTracer tracer = new BatchTracer(3);
+        tracer.setMismatchLimit(2);
+        tracer.setSlowest(3);
+        BatchSummary summary;
+        try {
+            summary = tracer.trace(pairs, results::add);
+        } catch (InterruptedException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertEquals(8, results.size());
+        assertEquals(4, summary.getMatches());
+        assertEquals(4, summary.getMismatches());
+        assertEquals(0, summary.getErrors());
+        assertEquals(3, summary.getSlowest().size());
+        for (TraceResult result : results) {
+            if (result.getStatus() == TraceResult.Status.MISMATCH) {
+                assertEquals(2, result.getMismatches().size());
+                assertTrue(result.getMismatches().get(0).getPath().endsWith("salary"));
+            }
+        }
+    }
+
+    @Test
+    public void testManifest() {
+        File manifest;
+        try {
+            File directory = Files.createTempDirectory("batch").toFile();
+            directory.deleteOnExit();
+            File broken = new File(directory, "broken.xml");
+            broken.deleteOnExit();
+            Files.write(broken.toPath(), "<company>".getBytes(StandardCharsets.UTF_8));
+
+            manifest = new File(directory, "manifest.txt");
+            manifest.deleteOnExit();
+            String company = new File("input/company.xml").getAbsolutePath();
+            Files.write(manifest.toPath(), Arrays.asList(
+                    "# expected actual",
+                    company + " " + company,
+                    "",
+                    company + "\tbroken.xml"), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        List<TraceResult> results = new ArrayList<>();
+        BatchSummary summary;
+        try {
+            summary = new BatchTracer(1).trace(BatchTracer.fromManifest(manifest), results::add);
+        } catch (IOException | InterruptedException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertEquals(2, summary.getPairs());
+        assertEquals(1, summary.getMatches());
+        assertEquals(1, summary.getErrors());
+        assertEquals(TraceResult.Status.MATCH, results.get(0).getStatus());
+        assertEquals(TraceResult.Status.ERROR, results.get(1).getStatus());
+        assertNotNull(results.get(1).getError());
+    }
+}
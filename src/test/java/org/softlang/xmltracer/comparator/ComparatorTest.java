@@ -1,12 +1,34 @@
 package org.softlang.xmltracer.comparator;
 
 import org.softlang.xmltracer.comparator.model.Base;
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
 import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.data.ArrayElement;
+import org.softlang.xmltracer.data.CollectionElement;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ListElement;
 import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveArray;
+import org.softlang.xmltracer.data.PrimitiveElement;
+import org.softlang.xmltracer.data.SetElement;
 import org.softlang.xmltracer.parser.DomXmlParser;
 import org.softlang.xmltracer.parser.JavaObjectParser;
 import org.xml.sax.SAXException;
@@ -42,4 +64,236 @@ public class ComparatorTest {
         Comparator comparator = new Comparator();
         assertTrue(comparator.compare(objectElement, objectElement));
     }
+
+    @Test
+    public void testRulePriority() {
+        PrimitiveElement upper = new PrimitiveElement("TEST");
+        PrimitiveElement lower = new PrimitiveElement("test");
+
+        Comparator comparator = new Comparator();
+        assertFalse(comparator.compare(upper, lower));
+
+        comparator.registerComparatorRule(PrimitiveElement.class, PrimitiveElement.class,
+                (e1, e2) -> e1.getValue().equalsIgnoreCase(e2.getValue()));
+        assertFalse(comparator.compare(upper, lower));
+
+        comparator.registerComparatorRule(1, PrimitiveElement.class, PrimitiveElement.class,
+                (e1, e2) -> e1.getValue().equalsIgnoreCase(e2.getValue()));
+        assertTrue(comparator.compare(upper, lower));
+    }
+
+    @Test
+    public void testComparePrimitiveArrays() {
+        int[] numbers = new int[100000];
+        Arrays.setAll(numbers, i -> i * 3);
+        int[] copy = numbers.clone();
+        ArrayElement array = new ArrayElement(new PrimitiveArray(numbers));
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.compare(array, new ArrayElement(new PrimitiveArray(copy))));
+        copy[copy.length - 1]++;
+        assertFalse(comparator.compare(array, new ArrayElement(new PrimitiveArray(copy))));
+
+        Element[] texts = new Element[numbers.length];
+        Arrays.setAll(texts, i -> new PrimitiveElement(Integer.toString(numbers[i])));
+        assertTrue(comparator.compare(array, new ArrayElement(texts)));
+        assertTrue(new JavaXmlComparator().compare(array, new CollectionElement(Arrays.asList(texts))));
+
+        // The bulk comparison is skipped when primitives are compared by
+        // another rule.
+        comparator.registerComparatorRule(1, PrimitiveElement.class, PrimitiveElement.class, (e1, e2) -> true);
+        assertTrue(comparator.compare(array, new ArrayElement(new PrimitiveArray(copy))));
+    }
+
+    @Test
+    public void testCompareLargeCollection() {
+        List<Element> members1 = new ArrayList<>();
+        List<Element> members2 = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            members1.add(new ObjectElement(Collections.singletonMap("i", new PrimitiveElement(Integer.toString(i % 30)))));
+            members2.add(new ObjectElement(Collections.singletonMap("i", new PrimitiveElement(Integer.toString(i % 30)))));
+        }
+        Collections.shuffle(members2, new Random(0));
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.compare(new CollectionElement(members1), new CollectionElement(members2)));
+
+        members2.set(0, new ObjectElement(Collections.singletonMap("i", new PrimitiveElement("30"))));
+        assertFalse(comparator.compare(new CollectionElement(members1), new CollectionElement(members2)));
+    }
+
+    @Test
+    public void testCompareMemo() {
+        List<Element> shared1 = new ArrayList<>();
+        List<Element> shared2 = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            shared1.add(new ObjectElement(Collections.singletonMap("k", new PrimitiveElement(i))));
+            shared2.add(new ObjectElement(Collections.singletonMap("k", new PrimitiveElement(i))));
+        }
+
+        // The members differ only by one member of their nested set, so every
+        // candidate compares the shared members again.
+        List<Element> members1 = new ArrayList<>();
+        List<Element> members2 = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Set<Element> set1 = new HashSet<>(shared1);
+            set1.add(new ObjectElement(Collections.singletonMap("u", new PrimitiveElement(i))));
+            members1.add(new ObjectElement(Collections.singletonMap("set", new SetElement(set1))));
+            Set<Element> set2 = new HashSet<>(shared2);
+            set2.add(new ObjectElement(Collections.singletonMap("u", new PrimitiveElement(i))));
+            members2.add(new ObjectElement(Collections.singletonMap("set", new SetElement(set2))));
+        }
+        Collections.shuffle(members2, new Random(0));
+        CollectionElement collection1 = new CollectionElement(members1);
+        CollectionElement collection2 = new CollectionElement(members2);
+
+        Comparator plain = new Comparator();
+        Comparator memo = new Comparator();
+        memo.setMemoCapacity(10000);
+        assertTrue(plain.compare(collection1, collection2));
+        assertTrue(memo.compare(collection1, collection2));
+
+        MemoStatistics statistics = memo.getMemoStatistics();
+        assertTrue(statistics.getHits() > 0);
+        assertTrue(statistics.getSavedPairs() > 0);
+        assertTrue(statistics.getComparedPairs() < plain.getMemoStatistics().getComparedPairs());
+        assertEquals(0, plain.getMemoStatistics().getHits());
+
+        memo.resetMemoStatistics();
+        memo.setMemoCapacity(4);
+        assertTrue(memo.compare(collection1, collection2));
+        assertTrue(memo.getMemoStatistics().getEvictions() > 0);
+
+        members2.set(0, new ObjectElement(Collections.singletonMap("set", new SetElement(new HashSet<>(shared2)))));
+        assertFalse(plain.compare(collection1, new CollectionElement(members2)));
+        assertFalse(memo.compare(collection1, new CollectionElement(members2)));
+    }
+
+    @Test
+    public void testCompareLargeCollectionJavaXml() {
+        List<Element> javaMembers = new ArrayList<>();
+        List<Element> xmlMembers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            PrimitiveElement value = new PrimitiveElement(Integer.toString(i));
+            javaMembers.add(new ListElement(Collections.singletonList(value)));
+            xmlMembers.add(value);
+        }
+        Collections.reverse(xmlMembers);
+
+        Comparator comparator = new JavaXmlComparator();
+        assertTrue(comparator.compare(new SetElement(new HashSet<>(javaMembers)), new CollectionElement(xmlMembers)));
+    }
+
+    @Test
+    public void testCompareParallel() {
+        List<Element> items1 = new ArrayList<>();
+        List<Element> items2 = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            Map<String, Element> map1 = new HashMap<>();
+            Map<String, Element> map2 = new HashMap<>();
+            for (int j = 0; j < 10; j++) {
+                map1.put("f" + j, new PrimitiveElement(i + "." + j));
+                map2.put("f" + j, new PrimitiveElement(i + "." + j));
+            }
+            items1.add(new ObjectElement(map1));
+            items2.add(new ObjectElement(map2));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Comparator comparator = new Comparator();
+            comparator.setParallelism(pool, 2);
+            assertTrue(comparator.compare(new ListElement(items1), new ListElement(items2)));
+
+            items2.set(700, new ObjectElement(Collections.singletonMap("f0", new PrimitiveElement("700.0"))));
+            assertFalse(comparator.compare(new ListElement(items1), new ListElement(items2)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testFindMismatches() {
+        Map<String, Element> map1 = new HashMap<>();
+        map1.put("a", new PrimitiveElement("1"));
+        map1.put("b", new CollectionElement(Arrays.asList(new PrimitiveElement("x"), new PrimitiveElement("y"))));
+        map1.put("c", new PrimitiveElement("3"));
+        Map<String, Element> map2 = new HashMap<>(map1);
+        map2.put("b", new CollectionElement(Arrays.asList(new PrimitiveElement("y"), new PrimitiveElement("z"))));
+        map2.remove("c");
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.findMismatches(new ObjectElement(map1), new ObjectElement(map1), 10).isEmpty());
+
+        List<Mismatch> mismatches = comparator.findMismatches(new ObjectElement(map1), new ObjectElement(map2), 10);
+        assertEquals(2, mismatches.size());
+        assertEquals("b[0]", mismatches.get(0).getPath());
+        assertEquals(new PrimitiveElement("x"), mismatches.get(0).getFirst());
+        assertEquals(new PrimitiveElement("z"), mismatches.get(0).getSecond());
+        assertEquals("c", mismatches.get(1).getPath());
+        assertEquals(null, mismatches.get(1).getSecond());
+        assertEquals("c: missing in the second element, first: 3, second: null", mismatches.get(1).toString());
+
+        // Subtrees and long values are abbreviated.
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'v');
+        assertEquals("d: missing in the second element, first: ObjectElement with 3 fields, second: null",
+                new Mismatch("d", new ObjectElement(map1), null, null, "missing in the second element").toString());
+        assertEquals("[1]: rule failed (rule), first: CollectionElement with 2 members, second: "
+                + new String(chars, 0, 80) + "... (1000 chars)",
+                new Mismatch("[1]", map1.get("b"), new PrimitiveElement(new String(chars)), "rule", "rule failed").toString());
+
+        assertEquals(1, comparator.findMismatches(new ObjectElement(map1), new ObjectElement(map2), 1).size());
+    }
+
+    @Test
+    public void testCompareDeepNesting() {
+        int depth = 20000;
+        Chain chain = new Chain();
+        Chain last = chain;
+        StringBuilder xml = new StringBuilder("<chain>");
+        for (int i = 0; i < depth; i++) {
+            Chain next = new Chain();
+            last.sub.add(next);
+            last = next;
+            xml.append("<name>d</name><sub>");
+        }
+        xml.append("<name>d</name>");
+        for (int i = 0; i < depth; i++) {
+            xml.append("</sub>");
+        }
+        xml.append("</chain>");
+
+        ObjectElement javaElement;
+        ObjectElement xmlElement;
+        try {
+            File file = File.createTempFile("deep", ".xml");
+            file.deleteOnExit();
+            Files.write(file.toPath(), xml.toString().getBytes(StandardCharsets.UTF_8));
+
+            javaElement = new JavaObjectParser().getObjectElement(chain);
+            xmlElement = new DomXmlParser(file).getParseResult();
+        } catch (IllegalArgumentException | IllegalAccessException | ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertTrue(new Comparator().compare(xmlElement, xmlElement));
+        assertTrue(new JavaXmlComparator().compare(javaElement, xmlElement));
+
+        last.name = "e";
+        try {
+            javaElement = new JavaObjectParser().getObjectElement(chain);
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+        assertFalse(new JavaXmlComparator().compare(javaElement, xmlElement));
+    }
+
+    private static class Chain {
+
+        private String name = "d";
+        private final List<Chain> sub = new ArrayList<>();
+    }
 }
@@ -1,15 +1,30 @@
 package org.softlang.xmltracer.comparator;
 
+import java.io.File;
 import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.Test;
 import org.softlang.xmltracer.comparator.model.Base;
 import org.softlang.xmltracer.comparator.model.Company;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
 import org.softlang.xmltracer.comparator.model.Department;
 import org.softlang.xmltracer.comparator.model.Employee;
 import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveElement;
 import org.softlang.xmltracer.parser.DomXmlParser;
 import org.softlang.xmltracer.parser.JavaObjectParser;
 import org.xml.sax.SAXException;
@@ -23,11 +38,109 @@ public class JavaXmlComparatorTest {
 
     @Test
     public void testCompareJavaXmlCompany() {
+        test("input/company.xml", createCompany(1234));
+    }
+
+    @Test
+    public void testFindMismatches() {
+        ObjectElement javaElement;
+        ObjectElement xmlElement;
+        try {
+            xmlElement = new DomXmlParser("input/company.xml").getParseResult();
+            javaElement = new JavaObjectParser().getObjectElement(createCompany(999));
+        } catch (ParserConfigurationException | SAXException | IOException | IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        List<Mismatch> mismatches = new JavaXmlComparator().findMismatches(javaElement, xmlElement, 10);
+        assertEquals(1, mismatches.size());
+        assertEquals("departments[0].employees[1].salary", mismatches.get(0).getPath());
+        assertEquals(new PrimitiveElement("999.0"), mismatches.get(0).getFirst());
+        assertEquals(new PrimitiveElement("1234.0"), mismatches.get(0).getSecond());
+    }
+
+    @Test
+    public void testGeneratedCompany() {
+        CompanyGenerator generator = new CompanyGenerator(42);
+        generator.setNodes(20000);
+        generator.setDepth(3);
+        generator.setFanOut(5);
+        generator.setDuplicateRatio(0.2);
+        generator.setMutationRate(0.001);
+
+        ObjectElement javaElement;
+        ObjectElement mutatedElement;
+        ObjectElement xmlElement;
+        try {
+            File file = File.createTempFile("generated", ".xml");
+            File otherFile = File.createTempFile("generated", ".xml");
+            file.deleteOnExit();
+            otherFile.deleteOnExit();
+            generator.writeXml(file, false);
+            generator.writeXml(otherFile, false);
+            assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(otherFile.toPath()));
+
+            xmlElement = new DomXmlParser(file).getParseResult();
+            javaElement = new JavaObjectParser().getObjectElement(generator.createCompany(false));
+            mutatedElement = new JavaObjectParser().getObjectElement(generator.createCompany(true));
+        } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException | IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        Comparator comparator = new JavaXmlComparator();
+        assertTrue(comparator.compare(javaElement, xmlElement));
+        assertFalse(comparator.compare(mutatedElement, xmlElement));
+        assertFalse(comparator.findMismatches(mutatedElement, xmlElement, 1).isEmpty());
+    }
+
+    @Test
+    public void testCompareSetMembers() {
+        Team team = new Team(new Member("x"), new Member("y"));
+        Team twins = new Team(new Member("x"), new Member("x"));
+        String xy = "<team><members><name>x</name></members><members><name>y</name></members></team>";
+        String xyy = "<team><members><name>x</name></members><members><name>y</name></members>"
+                + "<members><name>y</name></members></team>";
+        String xx = "<team><members><name>x</name></members><members><name>x</name></members></team>";
+
+        assertTrue(compare(team, xy));
+        assertFalse(compare(team, xyy));
+        assertFalse(compare(team, xx));
+        assertTrue(compare(twins, xx));
+        assertFalse(compare(twins, xy));
+
+        // Repeated primitives are merged like the values of a Java Set.
+        Tags tags = new Tags("x", "y");
+        assertTrue(compare(tags, "<r><tags>x</tags><tags>y</tags></r>"));
+        assertTrue(compare(tags, "<r><tags>x</tags><tags>y</tags><tags>y</tags></r>"));
+        assertFalse(compare(tags, "<r><tags>x</tags><tags>x</tags></r>"));
+        assertFalse(compare(tags, "<r><tags>x</tags><tags>y</tags><tags>z</tags></r>"));
+    }
+
+    /**
+     * Helper method for comparing an object with XML by the JavaXmlComparator
+     * and by the StreamingJavaXmlComparator, which have to agree.
+     */
+    private static boolean compare(Object object, String xml) {
+        try {
+            boolean result = new JavaXmlComparator().compare(new JavaObjectParser().getObjectElement(object),
+                    new DomXmlParser(xml.getBytes(StandardCharsets.UTF_8)).getParseResult());
+            assertEquals(result, new StreamingJavaXmlComparator().compare(object,
+                    XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml))));
+            return result;
+        } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException | IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return false;
+        }
+    }
+
+    private static Company createCompany(double salary) {
         Company company = new Company("ACME Corporation");
 
         Department department = new Department("Research", new Employee("Craig", "Redmond", 123456));
         department.addEmployee(new Employee("Erik", "Utrecht", 12345));
-        department.addEmployee(new Employee("Ralf", "Koblenz", 1234));
+        department.addEmployee(new Employee("Ralf", "Koblenz", salary));
         company.addDepartment(department);
 
         department = new Department("Development", new Employee("Ray", "Redmond", 234567));
@@ -38,7 +151,7 @@ public class JavaXmlComparatorTest {
         dev11.addEmployee(new Employee("Joe", "Wifi City", 2344));
         dev1.addSubDepartment(dev11);
 
-        test("input/company.xml", company);
+        return company;
     }
 
     private void test(String path, Object object) {
@@ -57,4 +170,31 @@ public class JavaXmlComparatorTest {
         Comparator comparator = new JavaXmlComparator();
         assertTrue(comparator.compare(javaElement, xmlElement));
     }
+
+    private static class Team {
+
+        private final Set<Member> members;
+
+        public Team(Member... members) {
+            this.members = new HashSet<>(Arrays.asList(members));
+        }
+    }
+
+    private static class Tags {
+
+        private final Set<String> tags;
+
+        public Tags(String... tags) {
+            this.tags = new HashSet<>(Arrays.asList(tags));
+        }
+    }
+
+    private static class Member {
+
+        private final String name;
+
+        public Member(String name) {
+            this.name = name;
+        }
+    }
 }
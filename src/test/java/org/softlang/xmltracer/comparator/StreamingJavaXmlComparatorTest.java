@@ -0,0 +1,101 @@
+package org.softlang.xmltracer.comparator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.model.Base;
+import org.softlang.xmltracer.comparator.model.CompanyGenerator;
+
+public class StreamingJavaXmlComparatorTest {
+
+    @Test
+    public void testCompareFiles() {
+        try {
+            StreamingJavaXmlComparator comparator = new StreamingJavaXmlComparator();
+            assertTrue(comparator.compare(new Base(), "input/base.xml"));
+            assertFalse(comparator.compare(new Base(), "input/company.xml"));
+        } catch (XMLStreamException | IOException | IllegalAccessException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testGeneratedCompany() {
+        CompanyGenerator generator = new CompanyGenerator(7);
+        generator.setNodes(5000);
+        generator.setDepth(3);
+        generator.setFanOut(4);
+        generator.setDuplicateRatio(0.2);
+        generator.setMutationRate(0.01);
+
+        try {
+            File file = File.createTempFile("generated", ".xml");
+            file.deleteOnExit();
+            generator.writeXml(file, false);
+
+            StreamingJavaXmlComparator comparator = new StreamingJavaXmlComparator();
+            assertTrue(comparator.compare(generator.createCompany(false), file));
+            assertFalse(comparator.compare(generator.createCompany(true), file));
+        } catch (XMLStreamException | IOException | IllegalAccessException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testCollections() {
+        assertTrue(compare(new Holder(Arrays.asList("a", "b"), null), "<r><list>a</list><list>b</list></r>"));
+        assertTrue(compare(new Holder(Arrays.asList("a"), null), "<r><list>a</list></r>"));
+        assertFalse(compare(new Holder(Arrays.asList("a", "b"), null), "<r><list>b</list><list>a</list></r>"));
+        assertFalse(compare(new Holder(Arrays.asList("a", "b"), null), "<r><list>a</list></r>"));
+        assertFalse(compare(new Holder(Arrays.asList("a"), null), "<r><list>a</list><list>a</list></r>"));
+
+        Set<String> set = new HashSet<>(Arrays.asList("a", "b", "c"));
+        assertTrue(compare(new Holder(null, set), "<r><set>c</set><set>a</set><set>b</set></r>"));
+        assertTrue(compare(new Holder(null, new HashSet<>(Arrays.asList("a"))), "<r><set>a</set></r>"));
+        assertFalse(compare(new Holder(null, set), "<r><set>c</set><set>a</set></r>"));
+        assertFalse(compare(new Holder(null, set), "<r><set>c</set><set>a</set><set>d</set></r>"));
+    }
+
+    @Test
+    public void testDifferent() {
+        Holder holder = new Holder(Arrays.asList("a"), null);
+        assertFalse(compare(holder, "<r><list>b</list></r>"));
+        assertFalse(compare(holder, "<r><list><i>a</i></list></r>"));
+        assertFalse(compare(holder, "<r><list>a</list><other>a</other></r>"));
+        assertFalse(compare(holder, "<r/>"));
+        assertTrue(compare(new Holder(null, null), "<r/>"));
+        assertFalse(compare(new Holder(new ArrayList<>(), null), "<r><list/></r>"));
+    }
+
+    private boolean compare(Object object, String xml) {
+        try {
+            return new StreamingJavaXmlComparator().compare(object,
+                    XMLInputFactory.newInstance().createXMLStreamReader(new StringReader(xml)));
+        } catch (XMLStreamException | IllegalAccessException ex) {
+            fail(ex);
+            return false;
+        }
+    }
+
+    private static class Holder {
+
+        private final List<String> list;
+        private final Set<String> set;
+
+        public Holder(List<String> list, Set<String> set) {
+            this.list = list;
+            this.set = set;
+        }
+    }
+}
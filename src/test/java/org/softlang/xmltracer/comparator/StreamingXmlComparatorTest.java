@@ -0,0 +1,185 @@
+package org.softlang.xmltracer.comparator;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.parser.DomXmlParser;
+import org.xml.sax.SAXException;
+
+public class StreamingXmlComparatorTest {
+
+    @Test
+    public void testCompareFilesSelf() {
+        try {
+            StreamingXmlComparator comparator = new StreamingXmlComparator();
+            assertTrue(comparator.compare("input/base.xml", "input/base.xml"));
+            assertTrue(comparator.compare("input/company.xml", "input/company.xml"));
+            assertFalse(comparator.compare("input/base.xml", "input/company.xml"));
+        } catch (XMLStreamException | IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testCompareReordered() {
+        assertTrue(compare(
+                "<r><e><n>a</n></e><e><n>b</n></e><x>1</x></r>",
+                "<r><x>1</x><e><n>b</n></e><e><n>a</n></e></r>"));
+        assertTrue(compare(
+                "<r><d><e>1</e><e>2</e></d><d><e>3</e></d></r>",
+                "<r><d><e>3</e></d><d><e>2</e><e>1</e></d></r>"));
+    }
+
+    @Test
+    public void testCompareDifferent() {
+        assertFalse(compare("<r><e>1</e></r>", "<r><e>2</e></r>"));
+        assertFalse(compare("<r><e>1</e></r>", "<r><e>1</e><e>1</e></r>"));
+        assertFalse(compare("<r><e>1</e></r>", "<r><e><i>1</i></e></r>"));
+        assertFalse(compare("<r><e>1</e><f>1</f></r>", "<r><e>1</e></r>"));
+        assertFalse(compare("<r><e><n>a</n></e><e><n>b</n></e></r>", "<r><e><n>b</n></e><e><n>c</n></e></r>"));
+    }
+
+    @Test
+    public void testCompareWindowExceeded() {
+        StreamingXmlComparator comparator = new StreamingXmlComparator(0, StreamingXmlComparator.DEFAULT_BUFFER_LIMIT);
+        assertFalse(compare(comparator,
+                "<r><a>1</a><b>1</b><c>1</c></r>",
+                "<r><c>1</c><b>1</b><a>1</a></r>"));
+        assertTrue(compare(
+                "<r><a>1</a><b>1</b><c>1</c></r>",
+                "<r><c>1</c><b>1</b><a>1</a></r>"));
+    }
+
+    @Test
+    public void testCompareRandomAgainstTrees() {
+        int matches = 0;
+        for (long seed = 0; seed < 500; seed++) {
+            Random random = new Random(seed);
+            Node node = Node.random(random, 4);
+            Node other = node.shuffled(random);
+            if (random.nextBoolean()) {
+                other.mutate(random);
+            }
+
+            String xml1 = "<r>" + node + "</r>";
+            String xml2 = "<r>" + other + "</r>";
+            boolean expected;
+            try {
+                expected = new Comparator().compare(
+                        new DomXmlParser(xml1.getBytes(StandardCharsets.UTF_8)).getParseResult(),
+                        new DomXmlParser(xml2.getBytes(StandardCharsets.UTF_8)).getParseResult());
+            } catch (ParserConfigurationException | SAXException | IOException ex) {
+                fail(ex);
+                return;
+            }
+            assertEquals(expected, compare(xml1, xml2), xml1 + " and " + xml2);
+            if (expected) {
+                matches++;
+            }
+        }
+        assertTrue(matches > 100 && matches < 400, matches + " matches");
+    }
+
+    private boolean compare(String xml1, String xml2) {
+        return compare(new StreamingXmlComparator(), xml1, xml2);
+    }
+
+    private boolean compare(StreamingXmlComparator comparator, String xml1, String xml2) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        try {
+            return comparator.compare(factory.createXMLStreamReader(new StringReader(xml1)),
+                    factory.createXMLStreamReader(new StringReader(xml2)));
+        } catch (XMLStreamException ex) {
+            fail(ex);
+            return false;
+        }
+    }
+
+    /**
+     * Intern helper class for a random XML element with either a value or
+     * children, from small sets of names and values, so siblings share names
+     * and repeated elements are common.
+     */
+    private static class Node {
+
+        private static final String[] NAMES = {"a", "b", "c"};
+        private static final String[] VALUES = {"1", "2", "3"};
+
+        private String name;
+        private String value;
+        private final List<Node> children = new ArrayList<>();
+
+        public static Node random(Random random, int depth) {
+            Node node = new Node();
+            node.name = NAMES[random.nextInt(NAMES.length)];
+            if (depth == 0 || random.nextInt(3) == 0) {
+                node.value = VALUES[random.nextInt(VALUES.length)];
+            } else {
+                for (int i = random.nextInt(4); i >= 0; i--) {
+                    node.children.add(random(random, depth - 1));
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Method for copying the node with the children of every element in a
+         * random order, which both comparisons ignore.
+         */
+        public Node shuffled(Random random) {
+            Node copy = new Node();
+            copy.name = name;
+            copy.value = value;
+            for (Node child : children) {
+                copy.children.add(child.shuffled(random));
+            }
+            Collections.shuffle(copy.children, random);
+            return copy;
+        }
+
+        /**
+         * Method for changing a random value, name or child below the node.
+         */
+        public void mutate(Random random) {
+            Node node = this;
+            while (!node.children.isEmpty() && random.nextInt(3) != 0) {
+                node = node.children.get(random.nextInt(node.children.size()));
+            }
+
+            int kind = random.nextInt(3);
+            if (node.value != null) {
+                node.value = VALUES[random.nextInt(VALUES.length)];
+            } else if (kind == 0) {
+                node.children.add(random(random, 1));
+            } else if (kind == 1 && node.children.size() > 1) {
+                node.children.remove(random.nextInt(node.children.size()));
+            } else {
+                node.children.get(random.nextInt(node.children.size())).name = NAMES[random.nextInt(NAMES.length)];
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder("<").append(name).append('>');
+            if (value != null) {
+                builder.append(value);
+            }
+            for (Node child : children) {
+                builder.append(child);
+            }
+            return builder.append("</").append(name).append('>').toString();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.softlang.xmltracer.comparator.model;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Random;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * A deterministic generator for companies of any size, as Java objects and in
+ * the XML format of input/company.xml. Equal settings and seeds always give
+ * the same company, and the Java objects match the XML. The XML is written
+ * while it is generated, so files of several GB need no more memory than
+ * small ones.
+ *
+ * The company has about the given number of nodes, counted as Elements of
+ * the parsed XML. Every department has fanOut employees and, down to the
+ * given depth, fanOut sub-departments. An employee is a copy of the
+ * previous one of its department with the duplicate ratio as probability.
+ * The salary of an employee is changed in the mutated variant with the
+ * mutation rate as probability, which gives controlled mismatches.
+ */
+public class CompanyGenerator {
+
+    private static final String[] CITIES = {"Koblenz", "Utrecht", "Redmond", "Boston", "Riga", "Wifi City",
+        "Amsterdam", "Berlin", "Cambridge", "Dublin", "Edinburgh", "Florence"};
+
+    private final long seed;
+    private long nodes = 1000;
+    private int depth = 4;
+    private int fanOut = 4;
+    private double duplicateRatio;
+    private double mutationRate;
+
+    /**
+     * Constructor for the class CompanyGenerator.
+     *
+     * @param seed The seed of the random values.
+     */
+    public CompanyGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setNodes(long nodes) {
+        if (nodes < 1) {
+            throw new IllegalArgumentException("The number of nodes must be positive.");
+        }
+        this.nodes = nodes;
+    }
+
+    public void setDepth(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("The depth must be positive.");
+        }
+        this.depth = depth;
+    }
+
+    public void setFanOut(int fanOut) {
+        if (fanOut < 0) {
+            throw new IllegalArgumentException("The fan-out must not be negative.");
+        }
+        this.fanOut = fanOut;
+    }
+
+    public void setDuplicateRatio(double duplicateRatio) {
+        this.duplicateRatio = duplicateRatio;
+    }
+
+    public void setMutationRate(double mutationRate) {
+        this.mutationRate = mutationRate;
+    }
+
+    /**
+     * Method for creating the company as Java objects.
+     *
+     * @param mutated True for the mutated variant.
+     * @return The company.
+     */
+    public Company createCompany(boolean mutated) {
+        ObjectSink sink = new ObjectSink();
+        try {
+            generate(sink, mutated);
+        } catch (XMLStreamException ex) {
+            // The ObjectSink does not write XML.
+            throw new IllegalStateException(ex);
+        }
+        return sink.company;
+    }
+
+    /**
+     * Method for writing the company as XML.
+     *
+     * @param file The file to be written.
+     * @param mutated True for the mutated variant.
+     * @throws XMLStreamException If any write errors occur.
+     * @throws IOException If any IO errors occur.
+     */
+    public void writeXml(File file, boolean mutated) throws XMLStreamException, IOException {
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(file), 1 << 16)) {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, "UTF-8");
+            generate(new XmlSink(writer), mutated);
+            writer.close();
+        }
+    }
+
+    /**
+     * Helper method for generating the company. The random values are drawn
+     * in the same order for every sink and variant.
+     *
+     * @param sink The sink of the company.
+     * @param mutated True for the mutated variant.
+     * @throws XMLStreamException If any write errors occur.
+     */
+    private void generate(Sink sink, boolean mutated) throws XMLStreamException {
+        Random random = new Random(seed);
+        // A department, its manager and its employees with 4 nodes each.
+        long departments = Math.max(1, nodes / (6 + 4L * fanOut));
+        long count = 0;
+
+        sink.startCompany("ACME Corporation");
+
+        // Every entry holds the level of a department and the number of
+        // sub-departments still to be generated.
+        Deque<int[]> stack = new ArrayDeque<>();
+        while (count < departments) {
+            generateDepartment(sink, random, mutated, count++);
+            stack.push(new int[]{0, depth > 1 ? fanOut : 0});
+
+            while (!stack.isEmpty()) {
+                int[] top = stack.peek();
+                if (top[1] > 0 && count < departments) {
+                    top[1]--;
+                    generateDepartment(sink, random, mutated, count++);
+                    stack.push(new int[]{top[0] + 1, top[0] + 2 < depth ? fanOut : 0});
+                } else {
+                    stack.pop();
+                    sink.endDepartment();
+                }
+            }
+        }
+
+        sink.endCompany();
+    }
+
+    private void generateDepartment(Sink sink, Random random, boolean mutated, long number) throws XMLStreamException {
+        sink.startDepartment("Department " + number, employee(random, mutated, null));
+
+        Employee previous = null;
+        for (int i = 0; i < fanOut; i++) {
+            previous = employee(random, mutated, previous);
+            sink.employee(previous);
+        }
+    }
+
+    private Employee employee(Random random, boolean mutated, Employee previous) {
+        boolean duplicate = random.nextDouble() < duplicateRatio;
+        boolean mutate = random.nextDouble() < mutationRate;
+        String name = "Employee " + random.nextInt(10000);
+        String address = CITIES[random.nextInt(CITIES.length)];
+        double salary = 1000 + random.nextInt(99000);
+
+        if (duplicate && previous != null) {
+            return new Employee(previous.getName(), previous.getAddress(), previous.getSalary());
+        }
+        return new Employee(name, address, mutated && mutate ? salary + 1 : salary);
+    }
+
+    /**
+     * Method for writing a generated company to a file.
+     *
+     * @param args The file, the seed, the nodes, the depth, the fan-out, the
+     * duplicate ratio, the mutation rate and true for the mutated variant.
+     * @throws Exception If the company can not be written.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: CompanyGenerator file seed [nodes [depth [fanOut [duplicateRatio [mutationRate [mutated]]]]]]");
+            System.exit(2);
+        }
+
+        CompanyGenerator generator = new CompanyGenerator(Long.parseLong(args[1]));
+        if (args.length > 2) {
+            generator.setNodes(Long.parseLong(args[2]));
+        }
+        if (args.length > 3) {
+            generator.setDepth(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            generator.setFanOut(Integer.parseInt(args[4]));
+        }
+        if (args.length > 5) {
+            generator.setDuplicateRatio(Double.parseDouble(args[5]));
+        }
+        if (args.length > 6) {
+            generator.setMutationRate(Double.parseDouble(args[6]));
+        }
+        generator.writeXml(new File(args[0]), args.length > 7 && Boolean.parseBoolean(args[7]));
+    }
+
+    /**
+     * Intern helper interface for the output of the generator.
+     */
+    private static interface Sink {
+
+        void startCompany(String name) throws XMLStreamException;
+
+        void startDepartment(String name, Employee manager) throws XMLStreamException;
+
+        void employee(Employee employee) throws XMLStreamException;
+
+        void endDepartment() throws XMLStreamException;
+
+        void endCompany() throws XMLStreamException;
+    }
+
+    /**
+     * Intern helper class building the Java objects.
+     */
+    private static class ObjectSink implements Sink {
+
+        private final Deque<Department> departments = new ArrayDeque<>();
+        private Company company;
+
+        @Override
+        public void startCompany(String name) {
+            company = new Company(name);
+        }
+
+        @Override
+        public void startDepartment(String name, Employee manager) {
+            Department department = new Department(name, manager);
+            if (departments.isEmpty()) {
+                company.addDepartment(department);
+            } else {
+                departments.peek().addSubDepartment(department);
+            }
+            departments.push(department);
+        }
+
+        @Override
+        public void employee(Employee employee) {
+            departments.peek().addEmployee(employee);
+        }
+
+        @Override
+        public void endDepartment() {
+            departments.pop();
+        }
+
+        @Override
+        public void endCompany() {
+        }
+    }
+
+    /**
+     * Intern helper class writing the XML.
+     */
+    private static class XmlSink implements Sink {
+
+        private final XMLStreamWriter writer;
+
+        public XmlSink(XMLStreamWriter writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void startCompany(String name) throws XMLStreamException {
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("company");
+            value("name", name);
+        }
+
+        @Override
+        public void startDepartment(String name, Employee manager) throws XMLStreamException {
+            writer.writeStartElement("departments");
+            value("name", name);
+            write("manager", manager);
+        }
+
+        @Override
+        public void employee(Employee employee) throws XMLStreamException {
+            write("employees", employee);
+        }
+
+        @Override
+        public void endDepartment() throws XMLStreamException {
+            writer.writeEndElement();
+        }
+
+        @Override
+        public void endCompany() throws XMLStreamException {
+            writer.writeEndElement();
+            writer.writeEndDocument();
+        }
+
+        private void write(String name, Employee employee) throws XMLStreamException {
+            writer.writeStartElement(name);
+            value("name", employee.getName());
+            value("address", employee.getAddress());
+            value("salary", Double.toString(employee.getSalary()));
+            writer.writeEndElement();
+        }
+
+        private void value(String name, String value) throws XMLStreamException {
+            writer.writeStartElement(name);
+            writer.writeCharacters(value);
+            writer.writeEndElement();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.softlang.xmltracer.data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import org.junit.jupiter.api.Test;
+
+public class CompactTreeTest {
+
+    @Test
+    public void testElementView() {
+        Map<String, Element> map = new HashMap<>();
+        map.put("name", new PrimitiveElement("root"));
+        map.put("empty", new ObjectElement(new HashMap<>()));
+        map.put("list", new ListElement(Arrays.asList(new PrimitiveElement("1"), new PrimitiveElement("2"))));
+        map.put("array", new ArrayElement(new Element[]{new PrimitiveElement("")}));
+        map.put("set", new SetElement(new HashSet<>(Arrays.asList(new PrimitiveElement("a"), new PrimitiveElement("b")))));
+        map.put("collection", new CollectionElement(Arrays.asList(
+                new ObjectElement(new HashMap<>(map)), new PrimitiveElement("x"))));
+        ObjectElement root = new ObjectElement(map);
+
+        CompactTree tree = CompactTree.of(root);
+        assertEquals(root, tree.getElement());
+        assertEquals(root.hashCode(), tree.getElement().hashCode());
+        assertEquals(root, tree.toElement());
+        assertEquals("root", tree.getValue(tree.findChild(0, "name")));
+        assertEquals(-1, tree.findChild(0, "missing"));
+    }
+
+    @Test
+    public void testGroupRepeatedNames() {
+        CompactTree tree = new CompactTree.Builder()
+                .startObject(null)
+                .value("a", "1")
+                .value("b", "2")
+                .value("a", "3")
+                .end()
+                .build();
+
+        int a = tree.findChild(0, "a");
+        assertEquals(2, tree.getChildCount(0));
+        assertEquals(CompactTree.COLLECTION, tree.getKind(a));
+        assertEquals(new CollectionElement(Arrays.asList(new PrimitiveElement("1"), new PrimitiveElement("3"))),
+                tree.getElement(a));
+        assertNotEquals(tree.getElement(), CompactTree.of(new ObjectElement(new HashMap<>())).getElement());
+    }
+}
@@ -0,0 +1,118 @@
+package org.softlang.xmltracer.data;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import org.junit.jupiter.api.Test;
+
+public class ElementTest {
+
+    @Test
+    public void testObjectEquality() {
+        assertEquals(object("a", "1", "b", "2"), object("b", "2", "a", "1"));
+        assertEquals(object("a", "1", "b", "2").hashCode(), object("b", "2", "a", "1").hashCode());
+        assertNotEquals(object("a", "1", "b", "2"), object("a", "2", "b", "1"));
+    }
+
+    @Test
+    public void testCollectionEquality() {
+        assertEquals(new CollectionElement(Arrays.asList(primitive("1"), primitive("2"), primitive("2"))),
+                new CollectionElement(Arrays.asList(primitive("2"), primitive("1"), primitive("2"))));
+        assertNotEquals(new CollectionElement(Arrays.asList(primitive("1"), primitive("1"), primitive("2"))),
+                new CollectionElement(Arrays.asList(primitive("2"), primitive("1"), primitive("2"))));
+        assertEquals(new SetElement(new HashSet<>(Arrays.asList(object("a", "1", "b", "2"), primitive("1")))),
+                new SetElement(new HashSet<>(Arrays.asList(primitive("1"), object("b", "2", "a", "1")))));
+    }
+
+    @Test
+    public void testListEquality() {
+        assertEquals(new ListElement(Arrays.asList(primitive("1"), primitive("2"))),
+                new ListElement(Arrays.asList(primitive("1"), primitive("2"))));
+        assertNotEquals(new ListElement(Arrays.asList(primitive("1"), primitive("2"))),
+                new ListElement(Arrays.asList(primitive("2"), primitive("1"))));
+        assertNotEquals(new ListElement(Arrays.asList(primitive("1"), primitive("2"))),
+                new ArrayElement(new Element[]{primitive("1"), primitive("2")}));
+    }
+
+    @Test
+    public void testTypedPrimitiveEquality() {
+        long[] numbers = {0, 7, -7, 1234567890123L, Long.MIN_VALUE, Long.MAX_VALUE};
+        for (long number : numbers) {
+            assertEquals(primitive(Long.toString(number)), new PrimitiveElement(number));
+            assertEquals(new PrimitiveElement(number), primitive(Long.toString(number)));
+            assertEquals(primitive(Long.toString(number)).hashCode(), new PrimitiveElement(number).hashCode());
+        }
+        assertNotEquals(primitive("07"), new PrimitiveElement(7));
+        assertNotEquals(primitive("-"), new PrimitiveElement(0));
+        assertNotEquals(primitive(""), new PrimitiveElement(0));
+
+        assertEquals(primitive("0.1"), new PrimitiveElement(0.1));
+        assertEquals(primitive("0.1"), new PrimitiveElement(0.1f));
+        assertEquals(new PrimitiveElement(0.1), new PrimitiveElement(0.1f));
+        assertNotEquals(new PrimitiveElement(0.1), new PrimitiveElement((double) 0.1f));
+        assertNotEquals(new PrimitiveElement(0.0), new PrimitiveElement(-0.0));
+        assertEquals(new PrimitiveElement(Double.NaN), primitive("NaN"));
+        assertEquals(primitive("true"), new PrimitiveElement(true));
+        assertEquals(primitive("e"), new PrimitiveElement('e'));
+        assertEquals(primitive("e").hashCode(), new PrimitiveElement('e').hashCode());
+        assertEquals(new PrimitiveElement(1), new PrimitiveElement(Integer.valueOf(1)));
+        assertEquals(primitive("1.5"), new PrimitiveElement(new java.math.BigDecimal("1.5")));
+    }
+
+    @Test
+    public void testPrimitiveArrayEquality() {
+        ArrayElement ints = new ArrayElement(new PrimitiveArray(new int[]{1, 2, 3}));
+        assertEquals(ints, new ArrayElement(new PrimitiveArray(new int[]{1, 2, 3})));
+        assertNotEquals(ints, new ArrayElement(new PrimitiveArray(new int[]{1, 3, 2})));
+        assertEquals(ints, new ArrayElement(new PrimitiveArray(new long[]{1, 2, 3})));
+        assertEquals(ints, new ArrayElement(new Element[]{primitive("1"), primitive("2"), primitive("3")}));
+        assertEquals(ints.hashCode(), new ArrayElement(new Element[]{primitive("1"), primitive("2"), primitive("3")}).hashCode());
+        assertEquals(new PrimitiveElement(2), ints.getElementList().get(1));
+    }
+
+    @Test
+    public void testSetMembersAreKept() {
+        SetElement set = new SetElement(Arrays.asList(object("a", "1", "b", "2"), object("b", "2", "a", "1")));
+        assertEquals(2, set.getCollection().size());
+        assertEquals(2, set.getElementSet().size());
+        assertNotEquals(set, new SetElement(Arrays.asList(object("a", "1", "b", "2"))));
+        assertEquals(set, new SetElement(Arrays.asList(object("a", "1", "b", "2"), object("a", "1", "b", "2"))));
+    }
+
+    @Test
+    public void testSharedSubtreeHash() {
+        // Every node reaches its child twice, so the paths double per level.
+        ObjectElement node1 = object("a", "1", "b", "2");
+        ObjectElement node2 = object("a", "1", "b", "2");
+        for (int i = 0; i < 64; i++) {
+            Map<String, Element> map1 = new HashMap<>();
+            map1.put("left", node1);
+            map1.put("right", node1);
+            node1 = new ObjectElement(map1);
+            Map<String, Element> map2 = new HashMap<>();
+            map2.put("left", node2);
+            map2.put("right", node2);
+            node2 = new ObjectElement(map2);
+        }
+
+        ObjectElement root1 = node1;
+        ObjectElement root2 = node2;
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> assertEquals(root1.hashCode(), root2.hashCode()));
+    }
+
+    private static PrimitiveElement primitive(String value) {
+        return new PrimitiveElement(value);
+    }
+
+    private static ObjectElement object(String key1, String value1, String key2, String value2) {
+        Map<String, Element> map = new HashMap<>();
+        map.put(key1, primitive(value1));
+        map.put(key2, primitive(value2));
+        return new ObjectElement(map);
+    }
+}
@@ -0,0 +1,91 @@
+package org.softlang.xmltracer.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.parser.CompactXmlParser;
+
+public class TreeSnapshotTest {
+
+    @Test
+    public void testRoundTrip() {
+        Map<String, Element> map = new HashMap<>();
+        map.put("name", new PrimitiveElement("root"));
+        map.put("unicode", new PrimitiveElement("ä€😀"));
+        map.put("empty", new ObjectElement(new HashMap<>()));
+        map.put("list", new ListElement(Arrays.asList(new PrimitiveElement("1"), new PrimitiveElement("1"))));
+        map.put("array", new ArrayElement(new Element[]{new PrimitiveElement("")}));
+        map.put("set", new SetElement(new HashSet<>(Arrays.asList(new PrimitiveElement("a"), new PrimitiveElement("b")))));
+        map.put("collection", new CollectionElement(Arrays.asList(
+                new ObjectElement(new HashMap<>(map)), new PrimitiveElement("x"))));
+        ObjectElement root = new ObjectElement(map);
+
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TreeSnapshot.write(CompactTree.of(root), out);
+            CompactTree tree = TreeSnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+
+            assertEquals(root, tree.getElement());
+            assertTrue(new Comparator().compare(CompactTree.of(root), tree));
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testDocument() {
+        try {
+            File file = File.createTempFile("company", ".snapshot");
+            file.deleteOnExit();
+            CompactTree parsed = new CompactXmlParser("input/company.xml").getParseResult();
+            TreeSnapshot.write(parsed, file);
+
+            CompactTree tree = TreeSnapshot.read(file);
+            assertEquals(parsed.size(), tree.size());
+            assertTrue(new Comparator().compare(parsed, tree));
+            assertEquals(parsed.getElement(), tree.getElement());
+            assertFalse(new Comparator().compare(new CompactXmlParser("input/base.xml").getParseResult(), tree));
+
+            try (RandomAccessFile mapped = new RandomAccessFile(file, "r")) {
+                ByteBuffer buffer = mapped.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, mapped.length());
+                assertTrue(new Comparator().compare(parsed, TreeSnapshot.read(buffer)));
+                assertEquals(0, buffer.position());
+            }
+        } catch (XMLStreamException | IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testInvalid() {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            TreeSnapshot.write(new CompactXmlParser("input/base.xml").getParseResult(), out);
+            bytes = out.toByteArray();
+        } catch (XMLStreamException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertThrows(IOException.class, () -> TreeSnapshot.read("<xml/>".getBytes("UTF-8")));
+        assertThrows(IOException.class, () -> TreeSnapshot.read(Arrays.copyOf(bytes, bytes.length - 1)));
+        assertThrows(IOException.class, () -> TreeSnapshot.read(Arrays.copyOf(bytes, bytes.length + 1)));
+    }
+}
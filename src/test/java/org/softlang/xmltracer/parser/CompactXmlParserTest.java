@@ -0,0 +1,69 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.data.CompactTree;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class CompactXmlParserTest {
+
+    @Test
+    public void testSameAsDomBase() {
+        test("input/base.xml");
+    }
+
+    @Test
+    public void testSameAsDomCompany() {
+        test("input/company.xml");
+    }
+
+    @Test
+    public void testCompareTrees() {
+        CompactTree tree1;
+        CompactTree tree2;
+        try {
+            File file = File.createTempFile("compact", ".xml");
+            file.deleteOnExit();
+            tree1 = new CompactXmlParser("input/company.xml").getParseResult();
+
+            String xml = new String(Files.readAllBytes(new File("input/company.xml").toPath()), StandardCharsets.UTF_8);
+            Files.write(file.toPath(), xml.replaceFirst("<salary>[^<]*</salary>", "<salary>1</salary>").getBytes(StandardCharsets.UTF_8));
+            tree2 = new CompactXmlParser(file).getParseResult();
+        } catch (XMLStreamException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.compare(tree1, tree1));
+        assertFalse(comparator.compare(tree1, tree2));
+        assertFalse(comparator.compare(tree1.getElement(), tree2.getElement()));
+    }
+
+    private void test(String path) {
+        ObjectElement domElement;
+        CompactTree tree;
+        try {
+            domElement = new DomXmlParser(path).getParseResult();
+            tree = new CompactXmlParser(path).getParseResult();
+        } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.compare(domElement, tree.getElement()));
+        assertTrue(comparator.compare(tree.getElement(), domElement));
+        assertTrue(comparator.compare(tree, CompactTree.of(domElement)));
+    }
+}
@@ -0,0 +1,52 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class DomXmlParserTest {
+
+    @Test
+    public void testInputs() {
+        try {
+            ObjectElement expected = new DomXmlParser("input/company.xml").getParseResult();
+            byte[] bytes = Files.readAllBytes(Paths.get("input/company.xml"));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 2);
+            buffer.put((byte) 0).put(bytes).put((byte) 0);
+            buffer.position(1).limit(bytes.length + 1);
+
+            assertEquals(expected, new DomXmlParser(bytes).getParseResult());
+            assertEquals(expected, new DomXmlParser(new ByteArrayInputStream(bytes)).getParseResult());
+            assertEquals(expected, new DomXmlParser(new StringReader(new String(bytes, StandardCharsets.UTF_8))).getParseResult());
+            assertEquals(expected, new DomXmlParser(buffer).getParseResult());
+            assertEquals(1, buffer.position());
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testReuseAfterError() {
+        byte[] broken = "<company><name>ACME</company>".getBytes(StandardCharsets.UTF_8);
+        byte[] valid = "<company><name>ACME</name></company>".getBytes(StandardCharsets.UTF_8);
+
+        assertThrows(SAXException.class, () -> new DomXmlParser(broken));
+        try {
+            ObjectElement element = new DomXmlParser(valid).getParseResult();
+            assertEquals("ACME", element.getElementMap().get("name").toString());
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+        }
+    }
+}
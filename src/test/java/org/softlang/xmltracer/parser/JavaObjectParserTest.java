@@ -0,0 +1,260 @@
+package org.softlang.xmltracer.parser;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TimerTask;
+import java.util.concurrent.ForkJoinPool;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.data.Element;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.softlang.xmltracer.data.PrimitiveElement;
+
+public class JavaObjectParserTest {
+
+    @Test
+    public void testInheritedFields() {
+        ObjectElement objectElement;
+        try {
+            objectElement = new JavaObjectParser().getObjectElement(new Sub());
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertEquals(3, objectElement.getElementMap().size());
+        assertEquals(new PrimitiveElement("sub"), objectElement.getElementMap().get("name"));
+        assertEquals(new PrimitiveElement("1"), objectElement.getElementMap().get("a"));
+        assertEquals(new PrimitiveElement("2"), objectElement.getElementMap().get("b"));
+    }
+
+    @Test
+    public void testParallel() {
+        Holder holder = new Holder();
+        for (int i = 0; i < 1000; i++) {
+            holder.items.add(new Sub());
+            holder.numbers[i] = i;
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            JavaObjectParser parallelParser = new JavaObjectParser();
+            parallelParser.setParallelism(pool, 2);
+            assertEquals(new JavaObjectParser().getObjectElement(holder), parallelParser.getObjectElement(holder));
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelRuleError() {
+        Holder holder = new Holder();
+        IllegalStateException error = new IllegalStateException("rule failed");
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            JavaObjectParser parallelParser = new JavaObjectParser();
+            parallelParser.setParallelism(pool, 2);
+            parallelParser.registerParserRule(1, Integer.class::equals, obj -> {
+                if ((Integer) obj == 700) {
+                    throw error;
+                }
+                return new PrimitiveElement(obj.toString());
+            });
+            assertSame(error, assertThrows(IllegalStateException.class, () -> parallelParser.getObjectElement(holder)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testJdkSuperclass() {
+        Task task = new Task();
+        task.kind = "k";
+        try {
+            // The private fields of TimerTask are not open to the parser on
+            // Java 9 and later, so only the fields of Task are read.
+            ObjectElement objectElement = new JavaObjectParser().getObjectElement(task);
+            assertEquals(new PrimitiveElement("k"), objectElement.getElementMap().get("kind"));
+            assertEquals(objectElement, new JavaObjectParser().getLazyObjectElement(task));
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testSharedInstance() {
+        Node shared = new Node();
+        Node root = new Node();
+        root.left = shared;
+        root.right = shared;
+
+        ObjectElement objectElement;
+        try {
+            objectElement = new JavaObjectParser().getObjectElement(root);
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertSame(objectElement.getElementMap().get("left"), objectElement.getElementMap().get("right"));
+    }
+
+    @Test
+    public void testCycle() {
+        Node root = new Node();
+        root.left = new Node();
+        root.left.right = root;
+
+        assertThrows(IllegalArgumentException.class, () -> new JavaObjectParser().getObjectElement(root));
+    }
+
+    @Test
+    public void testDeepNesting() {
+        Node root = new Node();
+        Node last = root;
+        for (int i = 0; i < 100000; i++) {
+            last.left = new Node();
+            last = last.left;
+        }
+
+        ObjectElement objectElement;
+        ObjectElement otherElement;
+        try {
+            objectElement = new JavaObjectParser().getObjectElement(root);
+            otherElement = new JavaObjectParser().getObjectElement(root);
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        int depth = 0;
+        for (Element element = objectElement; element != null; element = ((ObjectElement) element).getElementMap().get("left")) {
+            depth++;
+        }
+        assertEquals(100001, depth);
+        assertEquals(objectElement.hashCode(), otherElement.hashCode());
+    }
+
+    @Test
+    public void testLazy() {
+        Holder holder = new Holder();
+        for (int i = 0; i < 100; i++) {
+            holder.items.add(new Sub());
+            holder.numbers[i] = i;
+        }
+        Node shared = new Node();
+        Node root = new Node();
+        root.left = shared;
+        root.right = shared;
+
+        JavaObjectParser parser = new JavaObjectParser();
+        try {
+            ObjectElement lazyHolder = parser.getLazyObjectElement(holder);
+            // Nothing is read before the first access.
+            holder.numbers[999] = -1;
+            assertEquals(parser.getObjectElement(holder), lazyHolder);
+            assertEquals(lazyHolder, parser.getObjectElement(holder));
+
+            ObjectElement lazyRoot = parser.getLazyObjectElement(root);
+            assertSame(lazyRoot.getElementMap().get("left"), lazyRoot.getElementMap().get("right"));
+            assertEquals(parser.getObjectElement(root), lazyRoot);
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testLazyCycle() {
+        Node root = new Node();
+        root.left = new Node();
+        root.left.right = root;
+
+        ObjectElement objectElement;
+        try {
+            objectElement = new JavaObjectParser().getLazyObjectElement(root);
+        } catch (IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        ObjectElement left = (ObjectElement) objectElement.getElementMap().get("left");
+        assertThrows(IllegalArgumentException.class, () -> left.getElementMap().get("right"));
+
+        // The size and the keys are found without parsing the Set, which
+        // holds the cycle.
+        Bag bag = new Bag();
+        bag.members.add(bag);
+        ObjectElement bagElement;
+        try {
+            bagElement = new JavaObjectParser().getLazyObjectElement(bag);
+        } catch (IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+        assertEquals(2, bagElement.getElementMap().size());
+        assertTrue(bagElement.getElementMap().containsKey("members"));
+        assertFalse(bagElement.getElementMap().containsKey("empty"));
+        assertEquals(new PrimitiveElement("bag"), bagElement.getElementMap().get("name"));
+        assertThrows(IllegalArgumentException.class, () -> bagElement.getElementMap().get("members"));
+    }
+
+    private static class Node {
+
+        private Node left;
+        private Node right;
+    }
+
+    private static class Task extends TimerTask {
+
+        private String kind;
+
+        @Override
+        public void run() {
+        }
+    }
+
+    private static class Bag {
+
+        private final Set<Object> members = new HashSet<>();
+        private final Set<Object> empty = new HashSet<>();
+        private final String name = "bag";
+    }
+
+    private static class Holder {
+
+        private final List<Sub> items = new ArrayList<>();
+        private final int[] numbers = new int[1000];
+        private final Integer[] boxed = new Integer[1000];
+
+        public Holder() {
+            for (int i = 0; i < boxed.length; i++) {
+                boxed[i] = i;
+            }
+        }
+    }
+
+    private static class Super {
+
+        private static final int CONSTANT = 0;
+
+        private final String name = "super";
+        private final int a = 1;
+        private transient int t = 3;
+    }
+
+    private static class Sub extends Super {
+
+        private final String name = "sub";
+        private final Integer b = 2;
+        private final String empty = null;
+    }
+}
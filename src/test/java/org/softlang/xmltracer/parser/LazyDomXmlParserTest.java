@@ -0,0 +1,58 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class LazyDomXmlParserTest {
+
+    @Test
+    public void testSameAsDomBase() {
+        test("input/base.xml");
+    }
+
+    @Test
+    public void testSameAsDomCompany() {
+        test("input/company.xml");
+    }
+
+    @Test
+    public void testParallelCompare() {
+        ObjectElement domElement;
+        ObjectElement lazyElement;
+        try {
+            domElement = new DomXmlParser("input/company.xml").getParseResult();
+            lazyElement = new LazyDomXmlParser("input/company.xml").getParseResult();
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        Comparator comparator = new Comparator();
+        comparator.setParallelism(ForkJoinPool.commonPool(), 1);
+        assertTrue(comparator.compare(lazyElement, domElement));
+    }
+
+    private void test(String path) {
+        ObjectElement domElement;
+        ObjectElement lazyElement;
+        try {
+            domElement = new DomXmlParser(path).getParseResult();
+            lazyElement = new LazyDomXmlParser(path).getParseResult();
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertTrue(new Comparator().compare(domElement, lazyElement));
+        assertEquals(domElement, lazyElement);
+        assertEquals(domElement.hashCode(), lazyElement.hashCode());
+    }
+}
@@ -0,0 +1,92 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.data.CompactTree;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class MappedXmlParserTest {
+
+    @Test
+    public void testSameAsDomBase() {
+        test(new File("input/base.xml"));
+    }
+
+    @Test
+    public void testSameAsDomCompany() {
+        test(new File("input/company.xml"));
+    }
+
+    @Test
+    public void testMarkup() {
+        String xml = "﻿<?xml version=\"1.0\" encoding=\"UTF-8\"?>\r\n"
+                + "<!DOCTYPE company [<!ELEMENT company ANY>]>\n"
+                + "<!-- comment --><company id=\"a>b\" x='/>'>\n"
+                + "  <name>A &amp; B &#x1F600; &#228;ä€<!-- skipped --><![CDATA[<x>&amp;]]>\r\nend</name>\n"
+                + "  <?pi data?><empty/><empty attr=\"1\" />\n"
+                + "  <ns:item>1</ns:item><ns:item><!-- c --></ns:item>\n"
+                + "  <nested>ignored<a>1</a>text</nested>\n"
+                + "</company>\n<!-- trailing -->";
+
+        try {
+            File file = File.createTempFile("mapped", ".xml");
+            file.deleteOnExit();
+            Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+            test(file);
+
+            CompactTree tree = new MappedXmlParser(file).getParseResult();
+            int name = tree.findChild(0, "name");
+            assertEquals("A & B 😀 ää€<x>&amp;\nend", tree.getValue(name));
+        } catch (XMLStreamException | IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testMalformed() {
+        assertThrows(XMLStreamException.class, () -> parse("<a><b></a></b>"));
+        assertThrows(XMLStreamException.class, () -> parse("<a><b>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&unknown;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&#1114112;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&#-5;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&#x+41;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&#0;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&#xD800;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<r><a>&#;</a></r>"));
+        assertThrows(XMLStreamException.class, () -> parse("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><a/>"));
+    }
+
+    private static CompactTree parse(String xml) throws XMLStreamException, IOException {
+        File file = File.createTempFile("mapped", ".xml");
+        file.deleteOnExit();
+        Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+        return new MappedXmlParser(file).getParseResult();
+    }
+
+    private void test(File file) {
+        ObjectElement domElement;
+        CompactTree tree;
+        try {
+            domElement = new DomXmlParser(file).getParseResult();
+            tree = new MappedXmlParser(file).getParseResult();
+        } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.compare(domElement, tree.getElement()));
+        assertTrue(comparator.compare(tree, CompactTree.of(domElement)));
+    }
+}
@@ -0,0 +1,163 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class ParseCacheTest {
+
+    @Test
+    public void testMemory() {
+        try {
+            File file = File.createTempFile("company", ".xml");
+            file.deleteOnExit();
+            Files.write(file.toPath(), Files.readAllBytes(Paths.get("input/company.xml")));
+            // Old enough, so the cache trusts the size and modification time.
+            file.setLastModified(System.currentTimeMillis() - 10000);
+
+            ParseCache cache = new ParseCache(1L << 30);
+            ObjectElement first = cache.get(file);
+            assertEquals(new DomXmlParser("input/company.xml").getParseResult(), first);
+            assertSame(first, cache.get(file));
+            assertSame(first, cache.get(file));
+
+            CacheStatistics statistics = cache.getStatistics();
+            assertEquals(2, statistics.getMemoryHits());
+            assertEquals(1, statistics.getMisses());
+            assertEquals(1, statistics.getEntries());
+            assertTrue(statistics.getMemoryBytes() > 0);
+
+            cache.invalidate(file);
+            ObjectElement second = cache.get(file);
+            assertEquals(first, second);
+            assertEquals(2, cache.getStatistics().getMisses());
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testChangedFile() {
+        try {
+            File file = File.createTempFile("changed", ".xml");
+            file.deleteOnExit();
+            Files.write(file.toPath(), "<root><value>1</value></root>".getBytes(StandardCharsets.UTF_8));
+            long modified = file.lastModified();
+
+            ParseCache cache = new ParseCache(1L << 20);
+            ObjectElement first = cache.get(file);
+
+            // Same size and modification time, only the content tells the
+            // change.
+            Files.write(file.toPath(), "<root><value>2</value></root>".getBytes(StandardCharsets.UTF_8));
+            file.setLastModified(modified);
+            ObjectElement second = cache.get(file);
+            assertNotEquals(first, second);
+            assertEquals(1, cache.getStatistics().getInvalidations());
+
+            // Touching the file without changing it keeps the entry.
+            file.setLastModified(modified + 1000);
+            assertSame(second, cache.get(file));
+            assertEquals(2, cache.getStatistics().getMisses());
+            assertEquals(1, cache.getStatistics().getMemoryHits());
+
+            Files.write(file.toPath(), "<root><value>".getBytes(StandardCharsets.UTF_8));
+            assertThrows(IOException.class, () -> cache.get(file));
+            assertThrows(IOException.class, () -> cache.get(new File(file.getPath() + ".missing")));
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testDisk() {
+        try {
+            File directory = Files.createTempDirectory("snapshots").toFile();
+            directory.deleteOnExit();
+            File file = new File("input/company.xml");
+
+            ParseCache writer = new ParseCache(1L << 30);
+            writer.setDiskDirectory(directory);
+            ObjectElement parsed = writer.get(file);
+            assertEquals(1, writer.getStatistics().getMisses());
+
+            File[] snapshots = directory.listFiles();
+            assertEquals(1, snapshots.length);
+            snapshots[0].deleteOnExit();
+
+            ParseCache reader = new ParseCache(1L << 30);
+            reader.setDiskDirectory(directory);
+            assertEquals(parsed, reader.get(file));
+            assertEquals(1, reader.getStatistics().getDiskHits());
+            assertEquals(0, reader.getStatistics().getMisses());
+
+            // A broken snapshot is replaced.
+            Files.write(snapshots[0].toPath(), new byte[]{'X', 'T', 'S'});
+            reader.clear();
+            assertEquals(parsed, reader.get(file));
+            assertEquals(1, reader.getStatistics().getMisses());
+            assertTrue(snapshots[0].length() > 3);
+        } catch (IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testUnwritableDisk() {
+        try {
+            File directory = Files.createTempDirectory("snapshots").toFile();
+            File file = new File("input/company.xml");
+
+            ParseCache cache = new ParseCache(1L << 30);
+            cache.setDiskDirectory(directory);
+            // Snapshots cannot be written into a removed directory, but the
+            // parse result is still returned and kept in memory.
+            assertTrue(directory.delete());
+            ObjectElement parsed = cache.get(file);
+            assertEquals(new DomXmlParser(file).getParseResult(), parsed);
+            assertEquals(1, cache.getStatistics().getMisses());
+            assertEquals(1, cache.getStatistics().getEntries());
+            assertFalse(directory.exists());
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+        }
+    }
+
+    @Test
+    public void testEviction() {
+        try {
+            File company = new File("input/company.xml");
+            File base = new File("input/base.xml");
+            long companySize = ParseCache.estimateSize(new DomXmlParser(company).getParseResult());
+            long baseSize = ParseCache.estimateSize(new DomXmlParser(base).getParseResult());
+
+            ParseCache cache = new ParseCache(Math.max(companySize, baseSize));
+            cache.get(company);
+            cache.get(base);
+            CacheStatistics statistics = cache.getStatistics();
+            assertEquals(1, statistics.getEvictions());
+            assertEquals(1, statistics.getEntries());
+            assertEquals(baseSize, statistics.getMemoryBytes());
+
+            ParseCache small = new ParseCache(0);
+            small.get(base);
+            assertEquals(0, small.getStatistics().getEntries());
+            assertEquals(0, small.getStatistics().getMemoryBytes());
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+        }
+    }
+}
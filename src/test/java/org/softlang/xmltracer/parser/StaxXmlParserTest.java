@@ -0,0 +1,40 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.IOException;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class StaxXmlParserTest {
+
+    @Test
+    public void testSameAsDomBase() {
+        test("input/base.xml");
+    }
+
+    @Test
+    public void testSameAsDomCompany() {
+        test("input/company.xml");
+    }
+
+    private void test(String path) {
+        ObjectElement domElement;
+        ObjectElement staxElement;
+        try {
+            domElement = new DomXmlParser(path).getParseResult();
+            staxElement = new StaxXmlParser(path).getParseResult();
+        } catch (ParserConfigurationException | SAXException | XMLStreamException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        Comparator comparator = new Comparator();
+        assertTrue(comparator.compare(domElement, staxElement));
+        assertTrue(comparator.compare(staxElement, domElement));
+    }
+}
@@ -0,0 +1,74 @@
+package org.softlang.xmltracer.parser;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import javax.xml.parsers.ParserConfigurationException;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import org.softlang.xmltracer.comparator.Comparator;
+import org.softlang.xmltracer.data.ListElement;
+import org.softlang.xmltracer.data.ObjectElement;
+import org.xml.sax.SAXException;
+
+public class SymbolTableTest {
+
+    @Test
+    public void testBounds() {
+        SymbolTable symbols = new SymbolTable(1, 1, 3);
+        assertSame(symbols.value("abc"), symbols.value(new String("abc")));
+        assertNotSame(symbols.value("abcd"), symbols.value("abcd"));
+        assertNotSame(symbols.value("xyz"), symbols.value("xyz"));
+        assertEquals(1, symbols.getValueCount());
+
+        String name = symbols.name(new String("name"));
+        assertSame(name, symbols.name(new String("name")));
+        assertEquals(1, symbols.getNameCount());
+
+        SymbolTable disabled = new SymbolTable(0, 0, 0);
+        assertNotSame(disabled.value(""), disabled.value(""));
+    }
+
+    @Test
+    public void testSharedTable() {
+        SymbolTable symbols = new SymbolTable();
+        ObjectElement first;
+        ObjectElement second;
+        try {
+            first = new DomXmlParser("input/company.xml", symbols).getParseResult();
+            second = new DomXmlParser("input/company.xml", symbols).getParseResult();
+        } catch (ParserConfigurationException | SAXException | IOException ex) {
+            fail(ex);
+            return;
+        }
+
+        assertTrue(new Comparator().compare(first, second));
+        assertSame(first.getElementMap().get("name"), second.getElementMap().get("name"));
+    }
+
+    @Test
+    public void testJavaValues() {
+        JavaObjectParser parser = new JavaObjectParser();
+        ObjectElement objectElement;
+        try {
+            objectElement = parser.getObjectElement(new Values());
+        } catch (IllegalArgumentException | IllegalAccessException ex) {
+            fail(ex);
+            return;
+        }
+
+        ListElement list = (ListElement) objectElement.getElementMap().get("values");
+        assertSame(list.getElementList().get(0), list.getElementList().get(1));
+        assertSame(list.getElementList().get(0), objectElement.getElementMap().get("value"));
+    }
+
+    private static class Values {
+
+        private final String value = new String("Karlsruhe");
+        private final List<String> values = Arrays.asList(new String("Karlsruhe"), new String("Karlsruhe"));
+    }
+}